@@ -0,0 +1,393 @@
+package site.petrumugurel.connect4;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.RectF;
+import android.support.v4.content.ContextCompat;
+import android.util.AttributeSet;
+import android.view.Choreographer;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.animation.AccelerateDecelerateInterpolator;
+import android.view.animation.Interpolator;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * The whole game board as one {@link View}, drawn on its {@link Canvas} straight from a
+ * {@link Board} - any number of rows and columns - and telling which column was touched.
+ * <p>Every cell is a square as big as the view allows, the board being centered horizontally
+ * and kept at the top. Nothing is laid out but the view itself, whatever the geometry.</p>
+ * <p>So that frames stay cheap however big the board is:
+ * <br>&#09; - the frame, the holes and the landed disks are drawn on a bitmap, redrawn
+ *           whole only when the view's size changes or disks are taken off the board. A disk
+ *           which lands is only added to it, and every frame only draws that bitmap and the
+ *           falling disks;
+ * <br>&#09; - disks are bitmaps from {@link DiskBitmaps}, already at the size they are drawn;
+ * <br>&#09; - all falling disks move in the same {@link Choreographer} frame callback, however
+ *           many there are, and are reused once landed.</p>
+ * <p>The timing of the frames of every animation is told to an {@link OnFramesListener}.</p>
+ */
+public class BoardView extends View {
+
+    /**
+     * Told about every column the user taps.
+     */
+    public interface OnColumnClickListener {
+        /**
+         * @param column board index of the tapped column.
+         */
+        void onColumnClick(int column);
+    }
+
+    /**
+     * Told how every animation of falling disks kept up with the display, once all disks
+     * landed.
+     */
+    public interface OnFramesListener {
+        /**
+         * @param statistics of the frames of the animation. Only valid during the call.
+         */
+        void onAnimationFinished(FrameStatistics statistics);
+    }
+
+    private static final long  DROP_NANOS    = 500000000L;
+    /** Degrees a disk turns while falling. */
+    private static final float DROP_ROTATION = -480;
+    /** Radius of the holes, as a part of the cell size. */
+    private static final float HOLE_RADIUS   = 0.42f;
+    /** Space between a disk and the edge of its hole, as a part of the cell size. */
+    private static final float DISK_INSET    = 0.1f;
+    private static final float CORNER_RADIUS = 0.15f;
+
+    private static final Interpolator DROP_INTERPOLATOR = new AccelerateDecelerateInterpolator();
+
+    private final Paint mFramePaint    = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint mHolePaint     = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint mHoleEdgePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint mDiskPaint     = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final RectF mFrame         = new RectF();
+
+    private Board                 mBoard;
+    private OnColumnClickListener mColumnListener;
+    private OnFramesListener      mFramesListener;
+
+    /** Disks still falling, drawn where they are instead of where they are on the board. */
+    private final List<Drop>       mDrops    = new ArrayList<Drop>();
+    /** Landed disks, to be reused by the next drops. */
+    private final ArrayDeque<Drop> mDropPool = new ArrayDeque<Drop>();
+    private final Choreographer.FrameCallback mFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            animateDrops(frameTimeNanos);
+        }
+    };
+    private boolean               mFrameScheduled;
+    /** When the last frame of the current animation was shown, {@code 0} if none yet. */
+    private long                  mLastFrameNanos;
+    private final FrameStatistics mFrameStatistics = new FrameStatistics();
+
+    /**
+     * Everything but the falling disks, drawn again whole only if not {@link #mBoardLayerValid}.
+     */
+    private Bitmap  mBoardLayer;
+    private Canvas  mBoardLayerCanvas;
+    private boolean mBoardLayerValid;
+
+    // Set for the current size of the view and the geometry of the board.
+    private float  mCellSize;
+    private float  mLeft;
+    private float  mTop;
+    private Bitmap mPlayerDisk;
+    private Bitmap mAIDisk;
+
+
+    public BoardView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        mFramePaint.setColor(ContextCompat.getColor(context, R.color.boardColor));
+        mHolePaint.setColor(ContextCompat.getColor(context, R.color.backgroundColor));
+        mHoleEdgePaint.setColor(ContextCompat.getColor(context, R.color.holeEdgeColor));
+        mHoleEdgePaint.setStyle(Paint.Style.STROKE);
+    }
+
+
+    /**
+     * @param board to be drawn from now on, whatever its geometry.
+     */
+    public void setBoard(Board board) {
+        mBoard = board;
+        computeCells(getWidth(), getHeight());
+        refresh();
+    }
+
+    /**
+     * @param listener to be told about the columns the user taps, {@code null} for none.
+     */
+    public void setOnColumnClickListener(OnColumnClickListener listener) {
+        mColumnListener = listener;
+    }
+
+    /**
+     * @param listener to be told about the frames of every animation, {@code null} for none.
+     */
+    public void setOnFramesListener(OnFramesListener listener) {
+        mFramesListener = listener;
+    }
+
+    /**
+     * Animate a disk already stored on the board falling to its place.
+     * <br>Disks dropped while others are still falling move in the same frames as them.
+     * @param row board row of the disk.
+     * @param col board column of the disk.
+     */
+    public void dropDisk(int row, int col) {
+        Drop drop = mDropPool.isEmpty() ? new Drop() : mDropPool.pop();
+        drop.mRow = row;
+        drop.mCol = col;
+        drop.mStartNanos = 0;
+        drop.mFraction = 0;
+        // Only drawn on the board layer once landed.
+        mDrops.add(drop);
+
+        if (!mFrameScheduled) {
+            mFrameScheduled = true;
+            Choreographer.getInstance().postFrameCallback(mFrameCallback);
+        }
+        invalidate();
+    }
+
+    /**
+     * Land all falling disks and draw the board again, as it is now - to be called whenever
+     * disks are taken off the board.
+     */
+    public void refresh() {
+        if (mFrameScheduled) {
+            Choreographer.getInstance().removeFrameCallback(mFrameCallback);
+            mFrameScheduled = false;
+        }
+        if (!mDrops.isEmpty()) {
+            mDropPool.addAll(mDrops);
+            mDrops.clear();
+            finishAnimation();
+        }
+        mBoardLayerValid = false;
+        invalidate();
+    }
+
+    /**
+     * Move all falling disks to where they are in this frame.
+     * @param frameTimeNanos when the frame is shown, as given by the {@link Choreographer}.
+     */
+    private void animateDrops(long frameTimeNanos) {
+        mFrameScheduled = false;
+        if (mLastFrameNanos != 0) {
+            mFrameStatistics.addFrame(frameTimeNanos - mLastFrameNanos);
+        }
+        mLastFrameNanos = frameTimeNanos;
+
+        for (int i = mDrops.size() - 1; i >= 0; i--) {
+            Drop drop = mDrops.get(i);
+            if (drop.mStartNanos == 0) {
+                drop.mStartNanos = frameTimeNanos;
+            }
+            float elapsed = Math.min(1f, (float) (frameTimeNanos - drop.mStartNanos) / DROP_NANOS);
+            drop.mFraction = DROP_INTERPOLATOR.getInterpolation(elapsed);
+            if (elapsed == 1f) {
+                mDrops.remove(i);
+                mDropPool.push(drop);
+                if (mBoardLayerValid) {
+                    // Just the landed disk, the layer is already right everywhere else.
+                    drawDisk(mBoardLayerCanvas, drop.mRow, drop.mCol, 0, 0);
+                }
+            }
+        }
+        invalidate();
+
+        if (mDrops.isEmpty()) {
+            finishAnimation();
+        }
+        else {
+            mFrameScheduled = true;
+            Choreographer.getInstance().postFrameCallback(mFrameCallback);
+        }
+    }
+
+    /**
+     * Report the frames of the animation which just ended and get ready for the next one.
+     */
+    private void finishAnimation() {
+        if (mFramesListener != null && mFrameStatistics.getFrames() > 0) {
+            mFramesListener.onAnimationFinished(mFrameStatistics);
+        }
+        mFrameStatistics.clear();
+        mLastFrameNanos = 0;
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        if (mBoardLayer != null) {
+            mBoardLayer.recycle();
+            mBoardLayer = null;
+        }
+        if (w > 0 && h > 0) {
+            mBoardLayer = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+            mBoardLayerCanvas = new Canvas(mBoardLayer);
+        }
+        computeCells(w, h);
+        mBoardLayerValid = false;
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        refresh();
+        super.onDetachedFromWindow();
+    }
+
+    /**
+     * Fit the cells of the board into the view.
+     */
+    private void computeCells(int width, int height) {
+        if (mBoard == null) {
+            return;
+        }
+        int rows = mBoard.getNumberOfRows();
+        int columns = mBoard.getNumberOfColumns();
+        width -= getPaddingLeft() + getPaddingRight();
+        height -= getPaddingTop() + getPaddingBottom();
+        mCellSize = Math.min((float) width / columns, (float) height / rows);
+        mLeft = getPaddingLeft() + (width - mCellSize * columns) / 2;
+        mTop = getPaddingTop();
+        mFrame.set(mLeft, mTop, mLeft + mCellSize * columns, mTop + mCellSize * rows);
+        mHoleEdgePaint.setStrokeWidth(mCellSize * 0.04f);
+
+        int diskSize = Math.round(mCellSize * (1 - 2 * DISK_INSET));
+        if (diskSize > 0) {
+            mPlayerDisk = DiskBitmaps.get(getResources(), R.drawable.white, diskSize);
+            mAIDisk = DiskBitmaps.get(getResources(), R.drawable.red, diskSize);
+        }
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (mBoard == null || mCellSize <= 0 || mBoardLayer == null) {
+            return;
+        }
+        long start = System.nanoTime();
+
+        if (!mBoardLayerValid) {
+            drawBoardLayer(mBoardLayerCanvas);
+            mBoardLayerValid = true;
+        }
+        canvas.drawBitmap(mBoardLayer, 0, 0, null);
+
+        for (int i = mDrops.size() - 1; i >= 0; i--) {
+            Drop drop = mDrops.get(i);
+            // Falls from just above the view.
+            float fall = (drop.mRow + 1) * mCellSize + mTop;
+            drawDisk(canvas, drop.mRow, drop.mCol, -fall * (1 - drop.mFraction),
+                     DROP_ROTATION * drop.mFraction);
+        }
+
+        if (!mDrops.isEmpty()) {
+            mFrameStatistics.addDraw(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Draw the frame, the holes and the disks which are not falling.
+     */
+    private void drawBoardLayer(Canvas canvas) {
+        canvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+        float corner = mCellSize * CORNER_RADIUS;
+        canvas.drawRoundRect(mFrame, corner, corner, mFramePaint);
+        float radius = mCellSize * HOLE_RADIUS;
+        for (int row = mBoard.getNumberOfRows() - 1; row >= 0; row--) {
+            for (int col = mBoard.getNumberOfColumns() - 1; col >= 0; col--) {
+                float x = mLeft + (col + 0.5f) * mCellSize;
+                float y = mTop + (row + 0.5f) * mCellSize;
+                canvas.drawCircle(x, y, radius, mHolePaint);
+                canvas.drawCircle(x, y, radius, mHoleEdgePaint);
+                if (!isDropping(row, col)) {
+                    drawDisk(canvas, row, col, 0, 0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Draw the disk of a position, if there's any.
+     * @param offsetY how far down from its position to draw it.
+     * @param degrees how much to turn it.
+     */
+    private void drawDisk(Canvas canvas, int row, int col, float offsetY, float degrees) {
+        int disk = mBoard.getDiskAt(row, col);
+        if (disk == Board.IS_FREE || mPlayerDisk == null) {
+            return;
+        }
+        Bitmap bitmap = disk == Board.PLAYER_DISK ? mPlayerDisk : mAIDisk;
+        float left = mLeft + col * mCellSize;
+        float top = mTop + row * mCellSize + offsetY;
+        float inset = (mCellSize - bitmap.getWidth()) / 2;
+
+        if (degrees == 0) {
+            canvas.drawBitmap(bitmap, left + inset, top + inset, mDiskPaint);
+            return;
+        }
+        canvas.save();
+        canvas.rotate(degrees, left + mCellSize / 2, top + mCellSize / 2);
+        canvas.drawBitmap(bitmap, left + inset, top + inset, mDiskPaint);
+        canvas.restore();
+    }
+
+    private boolean isDropping(int row, int col) {
+        for (int i = mDrops.size() - 1; i >= 0; i--) {
+            if (mDrops.get(i).mRow == row && mDrops.get(i).mCol == col) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (mBoard == null || !isEnabled()) {
+            return false;
+        }
+        if (event.getActionMasked() == MotionEvent.ACTION_UP) {
+            performClick();
+            int column = (int) Math.floor((event.getX() - mLeft) / mCellSize);
+            if (mColumnListener != null && column >= 0 && column < mBoard.getNumberOfColumns()) {
+                mColumnListener.onColumnClick(column);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean performClick() {
+        // Only for accessibility services, columns are told about by onTouchEvent().
+        return super.performClick();
+    }
+
+
+    /**
+     * A disk falling to its position.
+     */
+    private static final class Drop {
+        int   mRow;
+        int   mCol;
+        /** When the disk started falling, {@code 0} until its first frame. */
+        long  mStartNanos;
+        /** How much of the way the disk fell, interpolated. */
+        float mFraction;
+    }
+}
@@ -0,0 +1,55 @@
+package site.petrumugurel.connect4;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.SparseArray;
+
+
+/**
+ * Disk images decoded once and shared by all {@link BoardView}s - the activity being created
+ * again, like on rotation, included.
+ * <p>Images are decoded at their own size and scaled only once for every size they are drawn
+ * at, so drawing a disk never scales nor decodes anything. Only to be used from the UI
+ * thread.</p>
+ */
+final class DiskBitmaps {
+
+    /** Every image, as decoded. */
+    private static final SparseArray<Bitmap> DECODED = new SparseArray<Bitmap>();
+    /** Every image at the last size it was asked for. */
+    private static final SparseArray<Bitmap> SCALED  = new SparseArray<Bitmap>();
+
+    private DiskBitmaps() {
+        // only static helpers here
+    }
+
+
+    /**
+     * Get a disk image at a size.
+     * @param resources to decode the image from, the first time it's asked for.
+     * @param drawable resource id of the image.
+     * @param size width and height of the image, in pixels.
+     * @return the image, shared with everyone else asking for it at the same size. Never to be
+     *         modified.
+     */
+    static Bitmap get(Resources resources, int drawable, int size) {
+        Bitmap scaled = SCALED.get(drawable);
+        if (scaled != null && scaled.getWidth() == size) {
+            return scaled;
+        }
+
+        Bitmap decoded = DECODED.get(drawable);
+        if (decoded == null) {
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            // Scaled right below, no need to scale for the density first.
+            options.inScaled = false;
+            decoded = BitmapFactory.decodeResource(resources, drawable, options);
+            DECODED.put(drawable, decoded);
+        }
+        scaled = Bitmap.createScaledBitmap(decoded, size, size, true);
+        // Views still drawing the old size hold on to it until they get the new one.
+        SCALED.put(drawable, scaled);
+        return scaled;
+    }
+}
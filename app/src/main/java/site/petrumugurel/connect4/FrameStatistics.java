@@ -0,0 +1,86 @@
+package site.petrumugurel.connect4;
+
+import java.util.Locale;
+
+
+/**
+ * Timing of the frames of an animation - how long apart they were shown and how long drawing
+ * them took - to tell if it kept up with the display.
+ * <p>A frame is slow if it came more than one and a half frame budgets after the one before,
+ * meaning at least one frame was missed.</p>
+ */
+public final class FrameStatistics {
+
+    /** Time between frames at 60 frames per second. */
+    static final long FRAME_BUDGET_NANOS = 1000000000L / 60;
+
+    private int  mFrames;
+    private int  mSlowFrames;
+    private long mIntervalNanos;
+    private long mWorstIntervalNanos;
+    private int  mDraws;
+    private long mDrawNanos;
+    private long mWorstDrawNanos;
+
+
+    /**
+     * @param intervalNanos time since the frame before, as given by the display.
+     */
+    void addFrame(long intervalNanos) {
+        mFrames++;
+        mIntervalNanos += intervalNanos;
+        mWorstIntervalNanos = Math.max(mWorstIntervalNanos, intervalNanos);
+        if (2 * intervalNanos > 3 * FRAME_BUDGET_NANOS) {
+            mSlowFrames++;
+        }
+    }
+
+    /**
+     * @param drawNanos how long drawing a frame took.
+     */
+    void addDraw(long drawNanos) {
+        mDraws++;
+        mDrawNanos += drawNanos;
+        mWorstDrawNanos = Math.max(mWorstDrawNanos, drawNanos);
+    }
+
+    void clear() {
+        mFrames = mSlowFrames = mDraws = 0;
+        mIntervalNanos = mWorstIntervalNanos = mDrawNanos = mWorstDrawNanos = 0;
+    }
+
+    public int getFrames() {
+        return mFrames;
+    }
+
+    public int getSlowFrames() {
+        return mSlowFrames;
+    }
+
+    /**
+     * @return frames shown per second, {@code 0} before the second frame.
+     */
+    public double getFramesPerSecond() {
+        return mIntervalNanos == 0 ? 0 : mFrames * 1e9 / mIntervalNanos;
+    }
+
+    public double getWorstFrameMillis() {
+        return mWorstIntervalNanos / 1e6;
+    }
+
+    public double getAverageDrawMillis() {
+        return mDraws == 0 ? 0 : mDrawNanos / 1e6 / mDraws;
+    }
+
+    public double getWorstDrawMillis() {
+        return mWorstDrawNanos / 1e6;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%d frames, %.1f fps, %d slow, worst %.1f ms; "
+                                        + "drawing %.2f ms, worst %.2f ms",
+                             mFrames, getFramesPerSecond(), mSlowFrames, getWorstFrameMillis(),
+                             getAverageDrawMillis(), getWorstDrawMillis());
+    }
+}
@@ -4,6 +4,7 @@ import android.app.AlertDialog;
 import android.app.Dialog;
 import android.content.Context;
 import android.content.DialogInterface;
+import android.content.res.AssetFileDescriptor;
 import android.media.AudioManager;
 import android.media.SoundPool;
 import android.os.Bundle;
@@ -17,34 +18,39 @@ import android.view.Menu;
 import android.view.MenuItem;
 import android.view.SoundEffectConstants;
 import android.view.View;
-import android.view.ViewGroup;
 import android.view.inputmethod.EditorInfo;
 import android.view.inputmethod.InputMethodManager;
 import android.widget.Button;
 import android.widget.EditText;
-import android.widget.ImageView;
-import android.widget.LinearLayout;
-import android.widget.RelativeLayout;
 import android.widget.TextView;
 import android.widget.Toast;
 
-public class MainActivity extends AppCompatActivity implements View.OnClickListener {
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+
+public class MainActivity extends AppCompatActivity {
     private Handler mHandler = new Handler();   // useful for adding various delays in the UX
     private SoundPool mSoundPool;
 
-    private RelativeLayout mBoardGrid;
-    private LinearLayout   mLl1;
-    private LinearLayout   mLl2;
-    private LinearLayout   mLl3;
-    private LinearLayout   mLl4;
+    private BoardView      mBoardView;
     private Board          mBoard;
+    private LazySmpEngine  mAIEngine;
+    private BookEngine     mBookEngine;     // plays the opening from books, then mAIEngine
+    private BackgroundAI   mBackgroundAI;   // keeps the AI's searches off the UI thread
     private EditText       mPlayerNameET;
     private EditText       mAINameET;
+    private TextView       mSearchStatisticsTV;     // debug overlay, only shown if asked for
+    private String         mSearchStatistics = "";  // of the AI's last search, for the overlay
+    private String         mFrameStatistics  = "";  // of the last drop animation, for the overlay
 
     // Following two fields are to be used together.
-    private int     mAIMoveDelay   = 700;    // delay time before the AI's move
+    private int     mAIMoveDelay   = 700;    // time the AI gets to think before its move
     // Controls whether we should register the player move and act accordingly
     private boolean mPlayerCanMove = true;
+    // Whether the player was already told how the game will end, if played perfectly.
+    private boolean mForcedResultShown;
 
 
     private int mTADASound;
@@ -66,79 +72,147 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
         mSADSound = mSoundPool.load(this, R.raw.sad_trombone, 1);
         mAPPLAUSESound = mSoundPool.load(this, R.raw.fake_applause, 1);
 
-        mBoardGrid = (RelativeLayout) findViewById(R.id.mainA_RL_FR_RL_grid);
-        checkIfValidDisksNumber();
-
-        mLl1 = (LinearLayout) findViewById(R.id.mainA_RL_FR_RL_LL_col1);
-        mLl2 = (LinearLayout) findViewById(R.id.mainA_RL_FR_RL_LL_col2);
-        mLl3 = (LinearLayout) findViewById(R.id.mainA_RL_FR_RL_LL_col3);
-        mLl4 = (LinearLayout) findViewById(R.id.mainA_RL_FR_RL_LL_col4);
-
-        mLl1.setOnClickListener(this);
-        mLl2.setOnClickListener(this);
-        mLl3.setOnClickListener(this);
-        mLl4.setOnClickListener(this);
+        mBoardView = (BoardView) findViewById(R.id.mainA_RL_BV_board);
+        mBoardView.setOnColumnClickListener(new BoardView.OnColumnClickListener() {
+            @Override
+            public void onColumnClick(int column) {
+                if (mPlayerCanMove) {
+                    playerMoveToColumn(column);
+                }
+            }
+        });
+        mBoardView.setOnFramesListener(new BoardView.OnFramesListener() {
+            @Override
+            public void onAnimationFinished(FrameStatistics statistics) {
+                Log.d(MainActivity.class.getSimpleName(), "Drop animation: " + statistics);
+                mFrameStatistics = "frames " + statistics;
+                updateStatisticsOverlay();
+            }
+        });
 
         mPlayerNameET = (EditText) findViewById(R.id.mainA_RL_TV_playerName);
         mAINameET = (EditText) findViewById(R.id.mainA_RL_TV_AIName);
+        mSearchStatisticsTV = (TextView) findViewById(R.id.mainA_RL_TV_searchStatistics);
 
         mBoard = new Board(4, 4, 3);
+        mBoardView.setBoard(mBoard);
+        // Search as deep as the time allows, on all cores.
+        mAIEngine = new LazySmpEngine(Runtime.getRuntime().availableProcessors(),
+                                      NegamaxEngine.MAX_PLIES,
+                                      new TranspositionTable(NegamaxEngine.DEFAULT_TABLE_ENTRIES));
+        mAIEngine.setSearchListener(new SearchMetrics.Listener() {
+            @Override
+            public void onSearchFinished(SearchMetrics metrics) {
+                // Called on the search thread - pondering included.
+                Log.d(MainActivity.class.getSimpleName(), "AI search: " + metrics);
+                showSearchStatistics(metrics);
+            }
+        });
+        mBookEngine = new BookEngine(mAIEngine);
+        loadOpeningBooks();
+        loadTablebases();
+        mBackgroundAI = new BackgroundAI(mBookEngine, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                mHandler.post(command);
+            }
+        });
 
         clearBoard();
     }
 
     /**
-     * Double check if each row of the board has exactly the same number of disks positions.
+     * Give the AI all opening books from the {@code books} assets folder.
+     * <br>Books are memory mapped straight from the APK, where they are kept uncompressed, so
+     * they never take any heap.
      */
-    private void checkIfValidDisksNumber() {
-        // Double check if each row has exactly the same number of disk positions
-        int nephews = ((ViewGroup) mBoardGrid.getChildAt(0)).getChildCount();
-        for (int x = mBoardGrid.getChildCount() - 1; x >= 0; x--) {
-            ViewGroup currLine = (ViewGroup) mBoardGrid.getChildAt(x);
-            if (nephews != currLine.getChildCount()) {
-                throw new RuntimeException("All lines must have same number of disks.");
+    private void loadOpeningBooks() {
+        try {
+            for (String name : getAssets().list("books")) {
+                AssetFileDescriptor descriptor = getAssets().openFd("books/" + name);
+                FileInputStream input = descriptor.createInputStream();
+                try {
+                    mBookEngine.addBook(OpeningBook.map(input.getChannel(),
+                                                        descriptor.getStartOffset(),
+                                                        descriptor.getLength()));
+                }
+                catch (IllegalArgumentException e) {
+                    Log.w(getClass().getSimpleName(), "Skipping opening book " + name, e);
+                }
+                finally {
+                    input.close();
+                }
             }
         }
+        catch (IOException e) {
+            // Only the opening gets slower.
+            Log.w(getClass().getSimpleName(), "Can't read the opening books", e);
+        }
     }
 
-
     /**
-     * Set all disks images to blank - transparent and reset all board counters for the disks.
+     * Give the AI all tablebases from the {@code tablebases} assets folder, mapped as the
+     * opening books are - see {@link #loadOpeningBooks()}.
      */
-    private void clearBoard() {
-        for (int x = mBoardGrid.getChildCount() - 1; x >= 0; x--) {
-            ViewGroup currLine = (ViewGroup) mBoardGrid.getChildAt(x);
-
-            for (int y = currLine.getChildCount() - 1; y >= 0; y--) {
-                ((ImageView) currLine.getChildAt(y)).setImageDrawable(null);
+    private void loadTablebases() {
+        try {
+            for (String name : getAssets().list("tablebases")) {
+                AssetFileDescriptor descriptor = getAssets().openFd("tablebases/" + name);
+                FileInputStream input = descriptor.createInputStream();
+                try {
+                    mBookEngine.addTablebase(Tablebase.map(input.getChannel(),
+                                                           descriptor.getStartOffset(),
+                                                           descriptor.getLength()));
+                }
+                catch (IllegalArgumentException e) {
+                    Log.w(getClass().getSimpleName(), "Skipping tablebase " + name, e);
+                }
+                finally {
+                    input.close();
+                }
             }
         }
+        catch (IOException e) {
+            // The small boards get searched like all others.
+            Log.w(getClass().getSimpleName(), "Can't read the tablebases", e);
+        }
+    }
 
+    /**
+     * Take all disks off the board and reset all board counters for the disks.
+     */
+    private void clearBoard() {
         mPlayerCanMove = true;
+        mForcedResultShown = false;
 
+        // Any move the AI was thinking about is for the old game.
+        mBackgroundAI.cancel();
         // Reset all board counters
         mBoard.clearBoard();
+        mBoardView.refresh();
     }
 
 
     /**
-     * Will animate a disk drawable image as falling to the indicated position.
-     * @param player on behalf on whom the move is made - will designate the disk drawable.
-     * @param row position where to insert the new disk.
-     * @param col position where to insert the new disk.
+     * Take back moves until it's the player's turn again - the player's last move and the AI's
+     * reply to it, or only the player's move if the AI is still thinking.
      */
-    public void dropDisk(Board.PLAYERS player, int row, int col) {
-        ViewGroup currLine = (ViewGroup) mBoardGrid.getChildAt(col);
-
-        ImageView diskPosition = (ImageView) currLine.getChildAt(row);
-
-        diskPosition.setTranslationY(-1000);
-
-        int diskDrawable = (player == Board.PLAYERS.PLAYER ? R.drawable.white
-                                                           : R.drawable.red);
-        diskPosition.setImageResource(diskDrawable);
+    private void undoLastMove() {
+        mBackgroundAI.cancel();
+
+        Board.PLAYERS lastMover;
+        do {
+            lastMover = mBoard.getLastMover();
+            if (lastMover == null) {
+                break;  // nothing left to take back
+            }
+            mBoard.undoMove();
+        } while (lastMover != Board.PLAYERS.PLAYER);
+        mBoardView.refresh();
 
-        diskPosition.animate().translationYBy(1000).rotation(-480).setDuration(500);
+        mPlayerCanMove = true;
+        mForcedResultShown = false;
+        updateScores();
     }
 
 
@@ -163,6 +237,10 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
             clearBoard();
         }
 
+        else if (id == R.id.mainM_I_undoMove) {
+            undoLastMove();
+        }
+
         else if (id == R.id.mainM_I_resetScores) {
             mBoard.resetScores();
             updateScores();
@@ -182,6 +260,11 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
                 menuItem.setChecked(true);
             }
         }
+        else if (id == R.id.mainM_I_searchStatistics) {
+            menuItem.setChecked(!menuItem.isChecked());
+            mSearchStatisticsTV.setVisibility(menuItem.isChecked() ? View.VISIBLE : View.GONE);
+            updateStatisticsOverlay();
+        }
         else if (id == R.id.mainM_I_changeNames) {
             enableNamesToBeEdited();
         }
@@ -279,9 +362,9 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
      * @param column position where to insert the new disk on behalf of the player.
      */
     private void playerMoveToColumn(int column) {
-        Integer row = mBoard.makePlayerMove(column);
-        if (row != null) {  // valid move (invalid if the column would be full).
-            dropDisk(Board.PLAYERS.PLAYER, row, column);
+        int row = mBoard.makePlayerMove(column);
+        if (row != Board.COLUMN_FULL) {  // valid move (invalid if the column would be full).
+            mBoardView.dropDisk(row, column);
             if (mBoard.getWinner() != null || mBoard.isDraw()) {
                 updateScores();
                 showGameOverDialog();
@@ -294,56 +377,92 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
     }
 
     /**
-     * Make a ~random move on behalf of the other player - the AI.
-     * <br>Will auto check before and after for if the game is already won or a draw.
+     * Make a move on behalf of the other player - the AI - as decided by its {@link AIEngine}.
+     * <br>The AI searches on a background thread for {@link #mAIMoveDelay} milliseconds - at
+     * least {@link NegamaxEngine#MIN_TIME_BUDGET} - which replaces the old fixed delay before
+     * its move, then ponders on the player's likely reply until the player moves.
+     * <br>Will auto check after the move for if the game is won or a draw.
      */
     private void makeAIMove() {
-//        if (mBoard.getWinner() != null || mBoard.isDraw()) {
-//            updateScores();
-//            showGameOverDialog();
-//            return;
-//        }
-        mHandler.postDelayed(new Runnable() {
+        mBackgroundAI.setThinkingTime(Math.max(mAIMoveDelay, NegamaxEngine.MIN_TIME_BUDGET));
+        mBackgroundAI.requestMove(mBoard, Board.PLAYERS.AI,
+                                  new BackgroundAI.OnMoveChosenListener() {
             @Override
-            public void run() {
-                Integer[] AIMovePosition = mBoard.makeAIMove();
-                if (AIMovePosition != null) {
-                    dropDisk(Board.PLAYERS.AI, AIMovePosition[0], AIMovePosition[1]);
+            public void onMoveChosen(int column) {
+                int row = mBoard.storeNewDisk(Board.PLAYERS.AI, column);
+                if (row != Board.COLUMN_FULL) {
+                    mBoardView.dropDisk(row, column);
                     if (mBoard.getWinner() != null || mBoard.isDraw()) {
                         updateScores();
                         showGameOverDialog();
                     }
+                    else {
+                        showForcedResult();
+                        mBackgroundAI.startPondering(mBoard, Board.PLAYERS.PLAYER);
+                    }
                     mPlayerCanMove = true;
                 }
             }
-        }, mAIMoveDelay);
+        });
     }
 
-    @Override
-    public void onClick(View v) {
-        switch (v.getId()) {
-            case R.id.mainA_RL_FR_RL_LL_col1:
-                if (mPlayerCanMove) {
-                    playerMoveToColumn(0);
-                }
-                break;
-            case R.id.mainA_RL_FR_RL_LL_col2:
-                if (mPlayerCanMove) {
-                    playerMoveToColumn(1);
-                }
-                break;
-            case R.id.mainA_RL_FR_RL_LL_col3:
-                if (mPlayerCanMove) {
-                    playerMoveToColumn(2);
-                }
-                break;
-            case R.id.mainA_RL_FR_RL_LL_col4:
-                if (mPlayerCanMove) {
-                    playerMoveToColumn(3);
-                }
-                break;
-            default :
-                Log.d(getClass().getSimpleName(), "Invalid View clicked !?");
+    /**
+     * Once the AI solved the game and found that it can't be lost anymore - a draw or a win for
+     * the AI whatever the player does - let the player skip the pointless moves left.
+     * <br>Shown only once per game.
+     */
+    private void showForcedResult() {
+        // Book and tablebase moves don't search, the result would be the one of an older search.
+        int result = mAIEngine.getForcedResult();
+        if (mForcedResultShown || mBookEngine.isLastMoveFromBook()
+            || (result != EndgameSolver.WIN && result != EndgameSolver.DRAW)) {
+            return;
+        }
+        mForcedResultShown = true;
+
+        String message = result == EndgameSolver.DRAW
+                         ? "No one can win this game anymore."
+                         : mAINameET.getText() + " wins this game whatever the moves.";
+        Snackbar.make(findViewById(android.R.id.content), message, Snackbar.LENGTH_LONG)
+                .setAction("New Game", new View.OnClickListener() {
+                    @Override
+                    public void onClick(View v) {
+                        clearBoard();
+                    }
+                })
+                .show();
+    }
+
+    /**
+     * Keep the metrics of the AI's last search for the debug overlay, showing them if it is
+     * visible.
+     * @param metrics of the search. Can be called from any thread.
+     */
+    private void showSearchStatistics(final SearchMetrics metrics) {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                mSearchStatistics = String.format(
+                        Locale.US,
+                        "depth %d  %,d nodes  %,.0f nodes/s  %.0f ms  %d threads%n"
+                        + "table hits %.1f%%  collisions %.1f%%%n"
+                        + "cutoffs %.1f%% (%.1f%% first move)  branching %.2f",
+                        metrics.getDepth(), metrics.getNodes(), metrics.getNodesPerSecond(),
+                        metrics.getTimeMillis(), metrics.getThreads(),
+                        100 * metrics.getTableHitRate(), 100 * metrics.getTableCollisionRate(),
+                        100 * metrics.getCutoffRate(), 100 * metrics.getFirstMoveCutoffRate(),
+                        metrics.getEffectiveBranchingFactor());
+                updateStatisticsOverlay();
+            }
+        });
+    }
+
+    /**
+     * Show the last search and animation metrics in the debug overlay, if it is visible.
+     */
+    private void updateStatisticsOverlay() {
+        if (mSearchStatisticsTV.getVisibility() == View.VISIBLE) {
+            mSearchStatisticsTV.setText(mSearchStatistics + "\n" + mFrameStatistics);
         }
     }
 
@@ -370,10 +489,9 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
         int soundToPlay = 0;
 
         if (mBoard.getWinner() != null) {
-            winner = mBoard.getWinner().equals(Board.PLAYERS.PLAYER.toString()) ?
+            winner = mBoard.getWinner() == Board.PLAYERS.PLAYER ?
                      mPlayerNameET.getText().toString() : mAINameET.getText().toString();
-            soundToPlay = mBoard.getWinner().equals(Board.PLAYERS.PLAYER.toString()) ?
-                          mTADASound : mSADSound;
+            soundToPlay = mBoard.getWinner() == Board.PLAYERS.PLAYER ? mTADASound : mSADSound;
             winner += " won!";
             gameOver = true;
         }
@@ -411,6 +529,8 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
     @Override
     protected void onDestroy() {
         mSoundPool.release();
+        mBackgroundAI.shutdown();
+        mAIEngine.shutdown();
         super.onDestroy();
     }
 }
@@ -0,0 +1,38 @@
+package site.petrumugurel.connect4;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FrameStatisticsTest {
+
+    @Test
+    public void framesMissingTheBudgetAreSlow() throws Exception {
+        FrameStatistics statistics = new FrameStatistics();
+        for (int i = 0; i < 29; i++) {
+            statistics.addFrame(FrameStatistics.FRAME_BUDGET_NANOS);
+        }
+        // One frame missed - shown two budgets after the one before.
+        statistics.addFrame(2 * FrameStatistics.FRAME_BUDGET_NANOS);
+
+        assertEquals(30, statistics.getFrames());
+        assertEquals(1, statistics.getSlowFrames());
+        assertEquals(30 / 31.0 * 60, statistics.getFramesPerSecond(), 0.01);
+        assertEquals(2000 / 60.0, statistics.getWorstFrameMillis(), 0.01);
+    }
+
+    @Test
+    public void drawTimesAreAveraged() throws Exception {
+        FrameStatistics statistics = new FrameStatistics();
+        assertEquals(0, statistics.getAverageDrawMillis(), 0);
+        statistics.addDraw(1000000);
+        statistics.addDraw(3000000);
+        assertEquals(2, statistics.getAverageDrawMillis(), 1e-9);
+        assertEquals(3, statistics.getWorstDrawMillis(), 1e-9);
+
+        statistics.clear();
+        assertEquals(0, statistics.getFrames());
+        assertEquals(0, statistics.getWorstDrawMillis(), 0);
+        assertEquals(0, statistics.getFramesPerSecond(), 0);
+    }
+}
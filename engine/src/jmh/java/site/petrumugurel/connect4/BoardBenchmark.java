@@ -0,0 +1,135 @@
+package site.petrumugurel.connect4;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Cost of applying moves to a {@link Board} and of checking for winners, for every square
+ * board size and every number of disks needed to win.
+ * <p>Other geometries can be measured with {@code -p geometry=rowsxcolumnsxdisks}, like
+ * {@code -p geometry=6x7x4}.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BoardBenchmark {
+
+    /** How many random games are replayed, one after the other. */
+    private static final int GAMES      = 64;
+    /** How many positions are checked for winners by every {@link #detectWins()}. */
+    private static final int WIN_CHECKS = 1024;
+
+    /** Rows x columns x disks needed to win. */
+    @Param({"4x4x2", "4x4x3",
+            "5x5x2", "5x5x3", "5x5x4",
+            "6x6x2", "6x6x3", "6x6x4", "6x6x5",
+            "7x7x2", "7x7x3", "7x7x4", "7x7x5", "7x7x6",
+            "8x8x2", "8x8x3", "8x8x4", "8x8x5", "8x8x6", "8x8x7",
+            "9x9x2", "9x9x3", "9x9x4", "9x9x5", "9x9x6", "9x9x7", "9x9x8",
+            "10x10x2", "10x10x3", "10x10x4", "10x10x5", "10x10x6", "10x10x7", "10x10x8",
+            "10x10x9"})
+    public String geometry;
+
+    private Board        mBoard;
+    /** Columns of the moves of every game, the player always starting. */
+    private int[][]      mGames;
+    private int          mNextGame;
+
+    private WinningLines mLines;
+    /** Bitboard of the side which made the move - {@code [low, high]} for every position. */
+    private long[]       mWinCheckBits;
+    /** Where the last disk of every position was stored. */
+    private int[]        mWinCheckIndexes;
+
+
+    @Setup
+    public void setUp() {
+        String[] sizes = geometry.split("x");
+        int rows = Integer.parseInt(sizes[0]);
+        int columns = Integer.parseInt(sizes[1]);
+        int disksNeededForWin = Integer.parseInt(sizes[2]);
+        mBoard = new Board(rows, columns, disksNeededForWin);
+        mLines = WinningLines.forGeometry(rows, columns, disksNeededForWin);
+
+        Random random = new Random(42);
+        int[] moves = new int[columns];
+        mGames = new int[GAMES][];
+        mWinCheckBits = new long[2 * WIN_CHECKS];
+        mWinCheckIndexes = new int[WIN_CHECKS];
+        int winChecks = 0;
+        for (int game = 0; game < GAMES || winChecks < WIN_CHECKS; game++) {
+            mBoard.clearBoard();
+            int[] columnsPlayed = new int[rows * columns];
+            long[] bits = new long[4];
+            int played = 0;
+            while (mBoard.getWinner() == null && !mBoard.isDraw()) {
+                int column = moves[random.nextInt(mBoard.getLegalMoves(moves))];
+                int side = played % 2;
+                int bitIndex = BitBoard.bitIndex(rows, mBoard.storeNewDisk(
+                        Board.PLAYERS.values()[side], column), column);
+                bits[2 * side + (bitIndex >>> 6)] |= 1L << (bitIndex & (BitBoard.WORD_SIZE - 1));
+                columnsPlayed[played++] = column;
+
+                if (winChecks < WIN_CHECKS) {
+                    mWinCheckBits[2 * winChecks] = bits[2 * side];
+                    mWinCheckBits[2 * winChecks + 1] = bits[2 * side + 1];
+                    mWinCheckIndexes[winChecks++] = bitIndex;
+                }
+            }
+            if (game < GAMES) {
+                mGames[game] = Arrays.copyOf(columnsPlayed, played);
+            }
+        }
+        mBoard.clearBoard();
+    }
+
+    /**
+     * Play a whole random game, checking for winners after every move, then take back all
+     * its moves.
+     */
+    @Benchmark
+    public long playAndUndoGame() {
+        int[] game = mGames[mNextGame];
+        mNextGame = (mNextGame + 1) % GAMES;
+        for (int i = 0; i < game.length; i++) {
+            mBoard.storeNewDisk(i % 2 == 0 ? Board.PLAYERS.PLAYER : Board.PLAYERS.AI, game[i]);
+        }
+        long hash = mBoard.getHash();
+        for (int i = 0; i < game.length; i++) {
+            mBoard.undoMove();
+        }
+        return hash;
+    }
+
+    /**
+     * Check for a winner through the last stored disk, as done after every move.
+     */
+    @Benchmark
+    @OperationsPerInvocation(WIN_CHECKS)
+    public int detectWins() {
+        int wins = 0;
+        for (int i = 0; i < WIN_CHECKS; i++) {
+            long low = mWinCheckBits[2 * i];
+            long high = mWinCheckBits[2 * i + 1];
+            for (int line : mLines.linesThrough(mWinCheckIndexes[i])) {
+                if (mLines.isComplete(line, low, high)) {
+                    wins++;
+                    break;
+                }
+            }
+        }
+        return wins;
+    }
+}
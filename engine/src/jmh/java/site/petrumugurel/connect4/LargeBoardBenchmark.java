@@ -0,0 +1,99 @@
+package site.petrumugurel.connect4;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * How the cost of moves - win check included - and of checking the whole board for lines grow
+ * with the size of a {@link LargeBoard} and with the number of disks needed to win.
+ * <p>Moves are measured on a half full board without lines, so every one of them goes through
+ * the whole check. Other geometries can be measured with
+ * {@code -p geometry=rowsxcolumnsxdisks}.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LargeBoardBenchmark {
+
+    /** How many moves are made and taken back by every {@link #storeAndUndo()}. */
+    private static final int MOVES = 64;
+
+    /** Rows x columns x disks needed to win. */
+    @Param({"7x7x4", "10x10x4",
+            "16x16x4", "16x16x8",
+            "32x32x4", "32x32x8", "32x32x16",
+            "64x64x4", "64x64x8", "64x64x16", "64x64x32"})
+    public String geometry;
+
+    private LargeBoard mBoard;
+    /** Playable columns of the half full board, in random order. */
+    private int[]      mColumns;
+
+
+    @Setup
+    public void setUp() {
+        String[] sizes = geometry.split("x");
+        int rows = Integer.parseInt(sizes[0]);
+        int columns = Integer.parseInt(sizes[1]);
+        mBoard = new LargeBoard(rows, columns, Integer.parseInt(sizes[2]));
+
+        // Fill half the board, taking back the moves which make lines.
+        Random random = new Random(42);
+        Board.PLAYERS side = Board.PLAYERS.PLAYER;
+        for (int tries = 0; mBoard.getMovesNumber() < rows * columns / 2 && tries < 1000000;
+             tries++) {
+            int column = random.nextInt(columns);
+            if (mBoard.isColumnFull(column) || mBoard.getColumnHeight(column) == rows - 1) {
+                continue;
+            }
+            mBoard.storeNewDisk(side, column);
+            if (mBoard.getWinner() != null) {
+                mBoard.undoMove();
+            }
+            else {
+                side = NegamaxEngine.opponent(side);
+            }
+        }
+
+        mColumns = new int[MOVES];
+        for (int i = 0; i < MOVES; i++) {
+            do {
+                mColumns[i] = random.nextInt(columns);
+            } while (mBoard.isColumnFull(mColumns[i]));
+        }
+    }
+
+    /**
+     * Store a disk and take it back, checking for a winner through it.
+     */
+    @Benchmark
+    @OperationsPerInvocation(MOVES)
+    public int storeAndUndo() {
+        int rows = 0;
+        for (int i = 0; i < MOVES; i++) {
+            rows += mBoard.storeNewDisk(i % 2 == 0 ? Board.PLAYERS.PLAYER : Board.PLAYERS.AI,
+                                        mColumns[i]);
+            mBoard.undoMove();
+        }
+        return rows;
+    }
+
+    /**
+     * Look for a line anywhere on the board, as boards not set up by playing need to.
+     */
+    @Benchmark
+    public boolean checkWholeBoard() {
+        return mBoard.hasLine(Board.PLAYERS.PLAYER);
+    }
+}
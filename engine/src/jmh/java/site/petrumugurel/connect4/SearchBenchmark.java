@@ -0,0 +1,72 @@
+package site.petrumugurel.connect4;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Speed of the {@link NegamaxEngine} search, in nodes per second, from the empty board.
+ * <p>The {@link TranspositionTable} is cleared before every search so that every one does the
+ * same work.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SearchBenchmark {
+
+    /** Entries of the table used, small enough to be cleared before every search. */
+    private static final int TABLE_ENTRIES = 1 << 16;
+
+    /** Rows x columns x disks needed to win. */
+    @Param({"6x7x4", "8x8x5", "10x10x5", "10x10x9"})
+    public String geometry;
+
+    @Param({"8"})
+    public int depth;
+
+    private Board              mBoard;
+    private TranspositionTable mTable;
+    private NegamaxEngine      mEngine;
+
+    /**
+     * Reported by JMH next to the searches per second, as nodes per second.
+     */
+    @State(Scope.Thread)
+    @AuxCounters
+    public static class Nodes {
+        public long nodes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            nodes = 0;
+        }
+    }
+
+
+    @Setup
+    public void setUp() {
+        String[] sizes = geometry.split("x");
+        mBoard = new Board(Integer.parseInt(sizes[0]), Integer.parseInt(sizes[1]),
+                           Integer.parseInt(sizes[2]));
+        mTable = new TranspositionTable(TABLE_ENTRIES);
+        mEngine = new NegamaxEngine(depth, 0, mTable);
+    }
+
+    @Benchmark
+    public int search(Nodes counter) {
+        mTable.clear();
+        int column = mEngine.chooseColumn(mBoard, Board.PLAYERS.PLAYER);
+        counter.nodes += mEngine.getNodesVisited();
+        return column;
+    }
+}
@@ -0,0 +1,63 @@
+package site.petrumugurel.connect4;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Cost of probing and storing in a {@link TranspositionTable} of the default size, with hashes
+ * spread over the whole table as in a real search.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TranspositionTableBenchmark {
+
+    /** How many hashes are probed / stored by every invocation. */
+    private static final int HASHES = 4096;
+
+    private TranspositionTable mTable;
+    private long[]             mHashes;
+
+
+    @Setup
+    public void setUp() {
+        mTable = new TranspositionTable(NegamaxEngine.DEFAULT_TABLE_ENTRIES);
+        mHashes = new long[HASHES];
+        Random random = new Random(42);
+        for (int i = 0; i < HASHES; i++) {
+            mHashes[i] = random.nextLong();
+            // Half of the probes will miss.
+            if (i % 2 == 0) {
+                mTable.store(mHashes[i], i % 20, i, TranspositionTable.EXACT, i % 7);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(HASHES)
+    public long probe() {
+        long found = 0;
+        for (long hash : mHashes) {
+            found += mTable.probe(hash);
+        }
+        return found;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(HASHES)
+    public void store() {
+        for (int i = 0; i < HASHES; i++) {
+            mTable.store(mHashes[i], i % 20, i, TranspositionTable.LOWER_BOUND, i % 7);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package site.petrumugurel.connect4;
+
+
+/**
+ * Strategy used by a {@link Board} to decide where the AI should store its next disk.
+ * <br>Set one through {@link Board#setAIEngine(AIEngine)} to change how the AI plays.
+ * <p>Searching engines should stop as soon as possible - returning their best move so far -
+ * when the thread they run on is interrupted.</p>
+ */
+public interface AIEngine {
+
+    /**
+     * Decide on the next move for the indicated side.
+     * <br>The engine may try moves on {@code board} but must take all of them back before
+     * returning, the chosen move is stored by the caller.
+     * @param board current state of the game, which must not be over yet.
+     * @param side on behalf of whom the move is to be made.
+     * @return board index of a column which still has free spaces.
+     */
+    int chooseColumn(Board board, Board.PLAYERS side);
+
+    /**
+     * Limit the time every next {@link #chooseColumn(Board, Board.PLAYERS)} can take.
+     * <br>Engines which don't search can ignore it.
+     * @param millis how long to think, {@code 0} for no time limit.
+     */
+    void setTimeBudget(long millis);
+}
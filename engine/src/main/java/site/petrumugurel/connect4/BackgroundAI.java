@@ -0,0 +1,194 @@
+package site.petrumugurel.connect4;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+
+/**
+ * Runs an {@link AIEngine} on a background thread so that searching never blocks the thread
+ * asking for moves - normally the UI thread.
+ * <p>Chosen moves are delivered through an {@link Executor} given by the caller - for Android
+ * one posting to the main thread's {@code Handler}. Every request can be cancelled, after
+ * which its move, even if already computed, is never delivered.</p>
+ * <p>While the other side thinks the engine can also ponder: predict the most likely reply
+ * and search the position after it with no time limit. All that work is kept in the engine's
+ * transposition table, so if the predicted reply is played the next search starts with most
+ * of the tree already known.</p>
+ * <p>All public methods are to be called from the same thread.</p>
+ */
+public class BackgroundAI {
+
+    /**
+     * Callback for moves computed in the background.
+     */
+    public interface OnMoveChosenListener {
+        /**
+         * Called through the callback {@link Executor} with the move chosen by the engine.
+         * @param column board index of the column where to store the disk.
+         */
+        void onMoveChosen(int column);
+    }
+
+    /** How long to search for the reply of the other side, the one to ponder on. */
+    static final long PREDICTION_TIME = 100;
+
+    private final AIEngine        mEngine;
+    private final Executor        mCallbackExecutor;
+    private final ExecutorService mSearchExecutor = Executors.newSingleThreadExecutor();
+
+    /** Currently running search, if any. */
+    private Future<?> mTask;
+    /** Incremented on every cancel so that results of cancelled searches can be told apart. */
+    private int       mGeneration;
+    private long      mThinkingTime;
+
+    /**
+     * Canonical hash of the position being pondered on, {@code 0} if not pondering.
+     * <br>Written by the search thread.
+     */
+    private volatile long mPonderedHash;
+    /**
+     * {@link #mGeneration} of the pondering which set {@link #mPonderedHash}, so that a hash
+     * set after being cancelled is told apart.
+     * <br>Written by the search thread, always before {@link #mPonderedHash}.
+     */
+    private volatile int  mPonderedGeneration;
+    private int           mPonderHits;
+    private int           mPonderMisses;
+
+
+    /**
+     * @param engine which will make all the moves. Should be used only by this class.
+     * @param callbackExecutor through which to deliver the chosen moves.
+     */
+    public BackgroundAI(AIEngine engine, Executor callbackExecutor) {
+        mEngine = engine;
+        mCallbackExecutor = callbackExecutor;
+    }
+
+    /**
+     * @param millis how long the engine can think for every next move.
+     */
+    public void setThinkingTime(long millis) {
+        mThinkingTime = millis;
+    }
+
+    /**
+     * Start searching for a move, stopping any previous search or pondering.
+     * @param board position to search. Copied, so it can be changed right after this returns.
+     * @param side on behalf of whom to search.
+     * @param listener to be informed of the chosen move, unless cancelled before.
+     */
+    public void requestMove(Board board, final Board.PLAYERS side,
+                            final OnMoveChosenListener listener) {
+        long ponderedHash = mPonderedHash;
+        if (ponderedHash != 0 && mPonderedGeneration == mGeneration) {
+            if (ponderedHash == board.getCanonicalHash()) {
+                mPonderHits++;
+            }
+            else {
+                mPonderMisses++;
+            }
+        }
+        cancel();
+
+        final Board searchedBoard = new Board(board);
+        final long thinkingTime = mThinkingTime;
+        final int generation = mGeneration;
+        mTask = mSearchExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                mEngine.setTimeBudget(thinkingTime);
+                final int column = mEngine.chooseColumn(searchedBoard, side);
+                if (Thread.currentThread().isInterrupted()) {
+                    return;     // cancelled, no one waits for this move anymore
+                }
+                mCallbackExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        // Might have been cancelled while this was waiting to be executed.
+                        if (generation == mGeneration) {
+                            mTask = null;
+                            listener.onMoveChosen(column);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Use the time until the next {@link #requestMove} to search ahead.
+     * <br>Predicts the move {@code sideToMove} will make then searches the resulting position
+     * for the other side until cancelled or until the search is complete.
+     * @param board current position. Copied, so it can be changed right after this returns.
+     * @param sideToMove who's to move next - the side the engine doesn't play for.
+     */
+    public void startPondering(Board board, final Board.PLAYERS sideToMove) {
+        cancel();
+        if (board.getWinner() != null || board.isDraw()) {
+            return;
+        }
+
+        final Board ponderedBoard = new Board(board);
+        final int generation = mGeneration;
+        mTask = mSearchExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                mEngine.setTimeBudget(PREDICTION_TIME);
+                int predictedColumn = mEngine.chooseColumn(ponderedBoard, sideToMove);
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+
+                ponderedBoard.storeNewDisk(sideToMove, predictedColumn);
+                if (ponderedBoard.getWinner() != null || ponderedBoard.isDraw()) {
+                    return;
+                }
+                // Cancelling might still come right before this, the generation tells.
+                mPonderedGeneration = generation;
+                mPonderedHash = ponderedBoard.getCanonicalHash();
+                mEngine.setTimeBudget(0);
+                mEngine.chooseColumn(ponderedBoard, NegamaxEngine.opponent(sideToMove));
+            }
+        });
+    }
+
+    /**
+     * Stop any running search or pondering. A move being searched will never be delivered.
+     */
+    public void cancel() {
+        mGeneration++;
+        mPonderedHash = 0;
+        if (mTask != null) {
+            mTask.cancel(true);
+            mTask = null;
+        }
+    }
+
+    /**
+     * @return how many times the position searched while pondering was the one for which a
+     *         move was then requested.
+     */
+    public int getPonderHits() {
+        return mPonderHits;
+    }
+
+    /**
+     * @return how many times pondering searched another position than the one for which a move
+     *         was then requested.
+     */
+    public int getPonderMisses() {
+        return mPonderMisses;
+    }
+
+    /**
+     * Stop any search and release the background thread. Can't be used afterwards.
+     */
+    public void shutdown() {
+        cancel();
+        mSearchExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,66 @@
+package site.petrumugurel.connect4;
+
+
+/**********************************************************************************
+ *
+ *      Layout of the bits for one side of a {@link Board} (here a 4 rows x 4 columns one).
+ *      Every column gets {@code rows + 1} bits, the top one always staying empty - the padding
+ *      bit which stops lines from wrapping over into the next column.
+ *
+ *
+ *                   |  0  |  1  |  2  |  3
+ *                --------------------------
+ *          padding  |  4  |  9  |  14 |  19
+ *                0  |  3  |  8  |  13 |  18
+ *                1  |  2  |  7  |  12 |  17
+ *                2  |  1  |  6  |  11 |  16
+ *                3  |  0  |  5  |  10 |  15
+ *               --------------------------
+ *
+ *      A 10 x 10 board needs 10 * 11 = 110 bits so every side is kept in two {@code long}s,
+ *      the {@code low} word holding bits 0 - 63 and the {@code high} word bits 64 - 127.
+ *
+ ************************************************************************************/
+
+
+/**
+ * Static helpers for working with the two words bitboards used by {@link Board}.
+ */
+final class BitBoard {
+
+    /** Number of bits in one of the two words of a bitboard. */
+    static final int WORD_SIZE = 64;
+
+    private BitBoard() {
+        // only static helpers here
+    }
+
+
+    /**
+     * Get the bit index of a board position.
+     * @param rows how many rows the board has.
+     * @param row board row, {@code 0} being the top one.
+     * @param col board column, {@code 0} being the leftmost one.
+     * @return index of the bit in the {@code [0, 128)} range.
+     */
+    static int bitIndex(int rows, int row, int col) {
+        return col * (rows + 1) + (rows - 1 - row);
+    }
+
+    /**
+     * Check if the indicated bit is set in the two words bitboard.
+     */
+    static boolean isSet(long low, long high, int bitIndex) {
+        return bitIndex < WORD_SIZE ? (low & (1L << bitIndex)) != 0
+                                    : (high & (1L << (bitIndex - WORD_SIZE))) != 0;
+    }
+
+    /**
+     * Shift between consecutive cells of a line, for each of the four directions.
+     * @param rows how many rows the board has.
+     * @return {vertical, horizontal, upwards diagonal, downwards diagonal} shifts.
+     */
+    static int[] directionShifts(int rows) {
+        return new int[] {1, rows + 1, rows + 2, rows};
+    }
+}
@@ -0,0 +1,669 @@
+package site.petrumugurel.connect4;
+
+
+/**********************************************************************************
+ *
+ *      The Board can take any reasonable size
+ *      (between MIN_ROWS - MAX_ROWS and MIN_COLUMNS - MAX_COLUMNS)
+ *
+ *
+ *                   |  0  |  1  |  2  |  3    MAX_COLUMNS
+ *                -------------------------- ....   |
+ *                0  |     |     |     |     ....   |
+ *                1  |     |     |     |     ....   |
+ *                2  |     |     |     |     ....   |
+ *                3  |     |     |     |     ....   |
+ *                .  |     .     .     .     ....   |
+ *                .  |     .     .     .     ....   |
+ *         MAX_ROWS  |     .     .     .     ....   |
+ *               ------------------------------------
+ *
+ *
+ ************************************************************************************/
+
+
+/**
+ * Basic functionality for a game similar to Connect 4.
+ * It has all the required members and provides all needed methods to make it possible to:
+ * <br>&#09; - create a board for a game similar to "Connect 4" with any reasonable number of rows
+ *          and columns and also any number of disks needed to win;
+ * <br>&#09; - store two different types of disks into any of its free positions;
+ * <br>&#09; - check for and return if there are winners on any row/column/diagonal or if there's
+ *          a draw;
+ */
+public class Board {
+
+    public enum PLAYERS {
+        PLAYER, AI
+    }
+
+
+    protected static final int PLAYER_DISK    = 0x01;
+    protected static final int AI_DISK        = 0x11;
+    protected static final int IS_FREE        = 0x00;
+    private static final int MIN_ROWS         = 4;
+    static final int         MAX_ROWS         = 10;
+    private static final int MIN_COLUMNS      = 4;
+    static final int         MAX_COLUMNS      = 10;
+    private static final int MIN_DISKS_TO_WIN = 2;
+
+    /** Returned instead of a row when trying to store a disk in a full column. */
+    public static final int COLUMN_FULL = -1;
+    /** Returned instead of a position when asking for a move after the game is over. */
+    public static final int NO_MOVE     = -1;
+
+    private static final int HISTORY_COLUMN_MASK  = 0x0F;
+    private static final int HISTORY_AI_MOVE      = 0x10;
+    private static final int HISTORY_SCORED       = 0x20;
+    private static final int HISTORY_WINNER_SHIFT = 6;
+    private static final int HISTORY_WAS_DRAW     = 0x100;
+
+    /**
+     * Keep track of the position of disks on the board as one bitboard for each side.
+     * <br>Every side uses two {@code long} words - {@code [low, high]} - laid out as explained
+     * in {@link BitBoard}, with the {@link PLAYERS#PLAYER} words first:
+     * <br>&#09; {@code [player low, player high, AI low, AI high]}.
+     */
+    private long[] mDiskBits;
+    /**
+     * All lines which can win a game with the current geometry, shared with all other boards
+     * of the same geometry.
+     */
+    private WinningLines mWinningLines;
+    /**
+     * How many disks are in each column, so the lowest free row of a column is always
+     * {@code mNumberOfRows - 1 - mColumnHeights[column]}.
+     */
+    private int[]  mColumnHeights;
+    /**
+     * Bit {@code i} is set while column {@code i} still has free spaces.
+     */
+    private int    mPlayableColumns;
+    /**
+     * Zobrist hash of the disks on the board, updated with every new disk.
+     * See {@link Zobrist}.
+     */
+    private long   mHash;
+    /**
+     * Zobrist hash of the left-right mirror of the disks on the board - the hash the board
+     * would have if every disk was stored in the column at the same distance from the other
+     * edge. Both positions are worth exactly the same.
+     */
+    private long   mMirrorHash;
+    /**
+     * Every move made since the board was cleared, {@link #mMovesNumber} being the top of the
+     * stack. Each move is packed in an {@code int}:
+     * <br>&#09; bits 0 - 3 &nbsp; the column;
+     * <br>&#09; {@link #HISTORY_AI_MOVE} &nbsp; set if the disk is the AI's;
+     * <br>&#09; {@link #HISTORY_SCORED} &nbsp; set if the move updated the scores;
+     * <br>&#09; bits 6 - 7 &nbsp; the winner before the move, {@code 0} for none or
+     *           {@code ordinal + 1};
+     * <br>&#09; {@link #HISTORY_WAS_DRAW} &nbsp; set if the game was a draw before the move.
+     */
+    private int[]  mMoveHistory;
+    /**
+     * Score of the disks on the board, updated with every new disk and every undo.
+     * <br>{@code null} while evaluation is disabled, see {@link #setEvaluationEnabled(boolean)}.
+     */
+    private WindowEvaluator mEvaluator;
+    /**
+     * Keep the scores for the board in a simple array [{@code Player score }, {@code AI score }].
+     */
+    private int[] mScores;
+
+    // Following are to be inputted by the user when creating the Board.
+    private int mNumberOfRows;
+    private int mNumberOfColumns;
+    private int mDisksNeededForWin;
+
+
+    /**
+     * To be used in checks for if we have a winner for the current game.
+     * <p>It will either: <br> &#09; be {@code null} signaling we don't have a winner &nbsp; or,
+     * <br>&#09; be the winner from {@link site.petrumugurel.connect4.Board PLAYERS}.</p>
+     */
+    private PLAYERS mWinner      = null;
+    private boolean mIsDraw      = false;
+    private int     mMovesNumber = 0;
+
+    /**
+     * Decides on the moves made by {@link #makeAIMove()}.
+     */
+    private AIEngine mAIEngine;
+
+
+    /**
+     * Query the {@link Board} at any time to find out if there's a winner or not.
+     * @return {@code null} &nbsp; signaling we don't have a winner <br>
+     *         the winner from {@link site.petrumugurel.connect4.Board PLAYERS}.
+     */
+    protected PLAYERS getWinner() {
+        return mWinner;
+    }
+
+    protected boolean isDraw() {
+        return mIsDraw;
+    }
+
+    protected int getDisksNeededForWin() {
+        return mDisksNeededForWin;
+    }
+
+    protected static int getMinDisksToWin() {
+        return MIN_DISKS_TO_WIN;
+    }
+
+    protected int getMaxDisksToWin() {
+        return mNumberOfRows > mNumberOfColumns ? mNumberOfColumns : mNumberOfRows;
+    }
+
+    /**
+     * {@link Board#getScores()}
+     * @return current scores in the form int [{@code Player score }, {@code AI score }]
+     */
+    public int[] getScores() {
+        return mScores;
+    }
+
+    /**
+     * Construct a {@link Board} with the indicated number of rows, columns and required disks of
+     * the same kind in a row to win.
+     *
+     * @param rows how many rows the board will have?
+     *             {@link Board#MIN_ROWS} = {@value Board#MIN_ROWS}
+     *             {@link Board#MAX_ROWS} = {@value Board#MAX_ROWS}
+     * @param columns how many columns the board will have?
+     *                {@link Board#MIN_COLUMNS} = {@value Board#MIN_COLUMNS}
+     *                {@link Board#MAX_COLUMNS} = {@value Board#MAX_COLUMNS}
+     * @param disksNeededForWin how many disks in a straght line needed to win?
+     *                          {@link Board#MIN_DISKS_TO_WIN} = {@value Board#MIN_DISKS_TO_WIN}
+     *
+     * @throws IllegalArgumentException if asked fewer/more rows/columns than needed or if the
+     * user sets an invalid (too low/big) number for the winning line of disks.
+     */
+    public Board(int rows, int columns, int disksNeededForWin)
+            throws IllegalArgumentException {
+
+        if (!(rows >= MIN_ROWS && columns >= MIN_COLUMNS)) {
+            throw new IllegalArgumentException("Minimum " + MIN_ROWS + " rows and "
+                                               + MIN_COLUMNS + " columns");
+        }
+        if (!(rows <= MAX_ROWS && columns <= MAX_COLUMNS)) {
+            throw new IllegalArgumentException("Maximum " + MAX_ROWS + " rows and "
+                                               + MAX_COLUMNS + " columns.");
+        }
+        if (!(disksNeededForWin >= MIN_DISKS_TO_WIN)) {
+            throw new IllegalArgumentException("A line of at least 3 disks is normally needed");
+        }
+        if (disksNeededForWin >= rows || disksNeededForWin >= columns) {
+            throw new IllegalArgumentException("More disks needed to win than spaces on the board");
+        }
+
+        mNumberOfRows = rows;
+        mNumberOfColumns = columns;
+        mDisksNeededForWin = disksNeededForWin;
+        mDiskBits = new long[4];
+        mWinningLines = WinningLines.forGeometry(rows, columns, disksNeededForWin);
+        mColumnHeights = new int[mNumberOfColumns];
+        mMoveHistory = new int[mNumberOfRows * mNumberOfColumns];
+        mScores = new int[2];
+        mEvaluator = new WindowEvaluator(mNumberOfRows, mNumberOfColumns, mDisksNeededForWin);
+
+        clearBoard();
+    }
+
+    /**
+     * Construct a {@link Board} with exactly the same disks, counters and scores as
+     * {@code other}, which can then be modified without affecting {@code other}.
+     * <br>Useful for AIs which want to search the position on another thread.
+     * @param other {@link Board} to copy.
+     */
+    public Board(Board other) {
+        mNumberOfRows = other.mNumberOfRows;
+        mNumberOfColumns = other.mNumberOfColumns;
+        mDisksNeededForWin = other.mDisksNeededForWin;
+        mDiskBits = other.mDiskBits.clone();
+        mWinningLines = other.mWinningLines;
+        mColumnHeights = other.mColumnHeights.clone();
+        mPlayableColumns = other.mPlayableColumns;
+        mHash = other.mHash;
+        mMirrorHash = other.mMirrorHash;
+        mMoveHistory = other.mMoveHistory.clone();
+        mEvaluator = other.mEvaluator == null ? null : new WindowEvaluator(other.mEvaluator);
+        mScores = other.mScores.clone();
+        mWinner = other.mWinner;
+        mIsDraw = other.mIsDraw;
+        mMovesNumber = other.mMovesNumber;
+        mAIEngine = other.mAIEngine;
+    }
+
+
+    /**
+     * Resets all counters including the Board map of already placed disks.
+     */
+    protected void clearBoard() {
+        mDiskBits[0] = mDiskBits[1] = mDiskBits[2] = mDiskBits[3] = 0L;
+        for (int x = mNumberOfColumns - 1; x >= 0; x--) {
+            mColumnHeights[x] = 0;
+        }
+        mPlayableColumns = (1 << mNumberOfColumns) - 1;
+        mHash = 0L;
+        mMirrorHash = 0L;
+        if (mEvaluator != null) {
+            mEvaluator.clear();
+        }
+
+        mMovesNumber = 0;
+        mIsDraw = false;
+        mWinner = null;
+    }
+
+    /**
+     * Resets the score counter.
+     */
+    protected void resetScores() {
+        mScores[0] = mScores[1] = 0;
+    }
+
+    /**
+     * <p>To be called after every move to check for winners or a draw.</p>
+     * <p>Only the lines passing through the last stored disk could have changed so will only
+     * check those, each with a single mask test - the lines are precomputed by
+     * {@link WinningLines}.</p>
+     * @param player on behalf of whom the last disk was stored.
+     * @param bitIndex position of the last stored disk, as given by {@link BitBoard#bitIndex}.
+     * @return {@code true} if found a winner, {@code false} otherwise.
+     */
+    private boolean checkForWinner(PLAYERS player, int bitIndex) {
+        // no point in checking if there are not enough moves made
+        if (mMovesNumber >= (mDisksNeededForWin * 2) - 1) {
+            int firstWord = player == PLAYERS.PLAYER ? 0 : 2;
+            long low = mDiskBits[firstWord];
+            long high = mDiskBits[firstWord + 1];
+
+            for (int line : mWinningLines.linesThrough(bitIndex)) {
+                if (mWinningLines.isComplete(line, low, high)) {
+                    mWinner = player;
+                    return true;
+                }
+            }
+        }
+
+        // If we don't have a winner check if all possible moves were made, case in which
+        // we have a draw.
+        if (mMovesNumber == mNumberOfRows * mNumberOfColumns) {
+            mIsDraw = true;
+        }
+        return false;   // don't have a winner
+    }
+
+    /**
+     * To be called only after we have a new winner. Will update the scores counter.
+     */
+    private void updateScore() {
+        mScores[mWinner.ordinal()]++;
+    }
+
+
+    /**
+     * Try to store a new disk on behalf of player at the indicated column.
+     * @param columnToInsertInto column into which to store a new disk, into the lowest free row.
+     * @return index of the row at which the disk was inserted<br>
+     *         {@link #COLUMN_FULL} if the indicated {@code columnToInsertInto} is already full.
+     */
+    protected int makePlayerMove(int columnToInsertInto) {
+        return storeNewDisk(PLAYERS.PLAYER, columnToInsertInto);
+    }
+
+
+    /**
+     * Insert a new disk on behalf of the AI into the column chosen by the current
+     * {@link AIEngine}, while there is not a winner or a draw.
+     * @return position where the AI's disk was inserted, packed as by
+     *         {@link #packPosition(int, int)}.<br>
+     *         {@link #NO_MOVE} if the game is basically over (has a winner or is draw) - there's
+     *         no need to make another move.
+     */
+    protected int makeAIMove() {
+        if (mWinner == null && !mIsDraw) {
+            if (mAIEngine == null) {
+                // Created only when needed, most boards - like those used by searches and
+                // tournaments - never make AI moves themselves.
+                mAIEngine = new NegamaxEngine();
+            }
+            int columnToInsertInto = mAIEngine.chooseColumn(this, PLAYERS.AI);
+            return packPosition(storeNewDisk(PLAYERS.AI, columnToInsertInto), columnToInsertInto);
+        }
+        return NO_MOVE;
+    }
+
+    /**
+     * Pack a board position in a single {@code int}, so it can be returned without allocating.
+     * @param row board row of the position.
+     * @param col board column of the position.
+     * @return both indexes in one {@code int}, to be read with {@link #rowOf(int)} and
+     *         {@link #columnOf(int)}.
+     */
+    public static int packPosition(int row, int col) {
+        return (row << 8) | col;
+    }
+
+    /**
+     * @param position packed by {@link #packPosition(int, int)}.
+     * @return board row of the position.
+     */
+    public static int rowOf(int position) {
+        return position >>> 8;
+    }
+
+    /**
+     * @param position packed by {@link #packPosition(int, int)}.
+     * @return board column of the position.
+     */
+    public static int columnOf(int position) {
+        return position & 0xFF;
+    }
+
+    /**
+     * Change how the AI decides on its moves.
+     * @param engine to be used for all next {@link #makeAIMove()} calls.
+     */
+    public void setAIEngine(AIEngine engine) {
+        mAIEngine = engine;
+    }
+
+
+    /**
+     * This method will actually insert a new disk in the indicated column if there's available
+     * space.
+     * @param player on behalf of whom the move is made, will designate the color of the stored disk
+     * @param columnToInsertInto board index of the column where to try to insert the disk
+     * @return  board index of the row where the disk was stored<br>
+     *          {@link #COLUMN_FULL} if on the indicated column there are no free spaces available
+     */
+    protected int storeNewDisk(PLAYERS player, int columnToInsertInto) {
+        int height = mColumnHeights[columnToInsertInto];
+        if (height == mNumberOfRows) {
+            return COLUMN_FULL;   // the column is filled with disks
+        }
+
+        int bitIndex = columnToInsertInto * (mNumberOfRows + 1) + height;
+        int word = (player == PLAYERS.PLAYER ? 0 : 2) + (bitIndex >>> 6);
+        mDiskBits[word] |= 1L << (bitIndex & (BitBoard.WORD_SIZE - 1));
+        mHash ^= Zobrist.key(player, columnToInsertInto, height);
+        mMirrorHash ^= Zobrist.key(player, mirrorColumn(columnToInsertInto), height);
+        if (mEvaluator != null) {
+            mEvaluator.diskAdded(player, bitIndex);
+        }
+
+        if (++mColumnHeights[columnToInsertInto] == mNumberOfRows) {
+            mPlayableColumns &= ~(1 << columnToInsertInto);
+        }
+
+        int move = columnToInsertInto
+                   | (player == PLAYERS.AI ? HISTORY_AI_MOVE : 0)
+                   | (mWinner == null ? 0 : mWinner.ordinal() + 1) << HISTORY_WINNER_SHIFT
+                   | (mIsDraw ? HISTORY_WAS_DRAW : 0);
+        mMovesNumber++;
+        if (checkForWinner(player, bitIndex)) {
+            updateScore();
+            move |= HISTORY_SCORED;
+        }
+        mMoveHistory[mMovesNumber - 1] = move;
+        return mNumberOfRows - 1 - height;
+    }
+
+    /**
+     * Take back the last stored disk, restoring the board to exactly how it was before it -
+     * including the winner, the draw state, the scores and the hash.
+     * <br>Lets searches try moves on a single board instead of copying it for every move.
+     * @return position from where the disk was removed, packed as by
+     *         {@link #packPosition(int, int)}.<br>
+     *         {@link #NO_MOVE} if there are no disks on the board.
+     */
+    protected int undoMove() {
+        if (mMovesNumber == 0) {
+            return NO_MOVE;
+        }
+
+        int move = mMoveHistory[--mMovesNumber];
+        int column = move & HISTORY_COLUMN_MASK;
+        PLAYERS player = (move & HISTORY_AI_MOVE) != 0 ? PLAYERS.AI : PLAYERS.PLAYER;
+        int height = --mColumnHeights[column];
+
+        int bitIndex = column * (mNumberOfRows + 1) + height;
+        int word = (player == PLAYERS.PLAYER ? 0 : 2) + (bitIndex >>> 6);
+        mDiskBits[word] &= ~(1L << (bitIndex & (BitBoard.WORD_SIZE - 1)));
+        mHash ^= Zobrist.key(player, column, height);
+        mMirrorHash ^= Zobrist.key(player, mirrorColumn(column), height);
+        if (mEvaluator != null) {
+            mEvaluator.diskRemoved(player, bitIndex);
+        }
+        mPlayableColumns |= 1 << column;
+
+        if ((move & HISTORY_SCORED) != 0) {
+            mScores[mWinner.ordinal()]--;
+        }
+        int previousWinner = (move >>> HISTORY_WINNER_SHIFT) & 0x03;
+        mWinner = previousWinner == 0 ? null : PLAYERS.values()[previousWinner - 1];
+        mIsDraw = (move & HISTORY_WAS_DRAW) != 0;
+
+        return packPosition(mNumberOfRows - 1 - height, column);
+    }
+
+    /**
+     * @return on behalf of whom the last disk was stored,
+     *         {@code null} if there are no disks on the board.
+     */
+    protected PLAYERS getLastMover() {
+        if (mMovesNumber == 0) {
+            return null;
+        }
+        return (mMoveHistory[mMovesNumber - 1] & HISTORY_AI_MOVE) != 0 ? PLAYERS.AI
+                                                                      : PLAYERS.PLAYER;
+    }
+
+    /**
+     * Check if a disk can still be stored in the indicated column.
+     * @param column board index of the column to check.
+     * @return {@code true} if there are no free spaces left in the column.
+     */
+    protected boolean isColumnFull(int column) {
+        return (mPlayableColumns & (1 << column)) == 0;
+    }
+
+    /**
+     * Check if a disk stored in a column would win the game, without storing it.
+     * @param player on behalf of whom the disk would be stored.
+     * @param column board index of the column.
+     * @return {@code true} if the disk would complete a line, {@code false} if not or if the
+     *         column is full.
+     */
+    protected boolean isWinningMove(PLAYERS player, int column) {
+        int height = mColumnHeights[column];
+        if (height == mNumberOfRows) {
+            return false;
+        }
+        int bitIndex = column * (mNumberOfRows + 1) + height;
+        int firstWord = player == PLAYERS.PLAYER ? 0 : 2;
+        long low = mDiskBits[firstWord];
+        long high = mDiskBits[firstWord + 1];
+        if (bitIndex < BitBoard.WORD_SIZE) {
+            low |= 1L << bitIndex;
+        }
+        else {
+            high |= 1L << (bitIndex - BitBoard.WORD_SIZE);
+        }
+
+        for (int line : mWinningLines.linesThrough(bitIndex)) {
+            if (mWinningLines.isComplete(line, low, high)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Find the free positions where a disk of a side would complete a line, whether they can
+     * be played right away or not.
+     * @param player whose threats to find.
+     * @param threats where to write the bitboard of the threats - {low, high} words laid out
+     *                as explained in {@link BitBoard}.
+     */
+    protected void findThreats(PLAYERS player, long[] threats) {
+        int ownWord = player == PLAYERS.PLAYER ? 0 : 2;
+        int otherWord = 2 - ownWord;
+        mWinningLines.findThreats(mDiskBits[ownWord], mDiskBits[ownWord + 1],
+                                  mDiskBits[otherWord], mDiskBits[otherWord + 1], threats);
+    }
+
+    /**
+     * Check if the game can only end in a draw, every line holding disks of both sides -
+     * which might be long before the board is full.
+     * @return {@code true} if no one can win anymore.
+     */
+    protected boolean isDeadDraw() {
+        return mWinner == null
+               && !mWinningLines.isAnyLineOpen(mDiskBits[0], mDiskBits[1],
+                                                mDiskBits[2], mDiskBits[3]);
+    }
+
+    /**
+     * @param column board index of the column.
+     * @return how many disks are in the column.
+     */
+    protected int getColumnHeight(int column) {
+        return mColumnHeights[column];
+    }
+
+    /**
+     * Query all columns which still have free spaces.
+     * @return bitmask in which bit {@code i} is set if column {@code i} is not full.
+     */
+    protected int getPlayableColumns() {
+        return mPlayableColumns;
+    }
+
+    /**
+     * List the columns which still have free spaces, from left to right.
+     * @param moves array of at least {@link #getNumberOfColumns()} elements to be filled
+     *              with the board indexes of the playable columns.
+     * @return how many columns were stored in {@code moves}.
+     */
+    protected int getLegalMoves(int[] moves) {
+        int count = 0;
+        for (int columns = mPlayableColumns; columns != 0; columns &= columns - 1) {
+            moves[count++] = Integer.numberOfTrailingZeros(columns);
+        }
+        return count;
+    }
+
+    protected int getNumberOfRows() {
+        return mNumberOfRows;
+    }
+
+    protected int getNumberOfColumns() {
+        return mNumberOfColumns;
+    }
+
+    protected int getMovesNumber() {
+        return mMovesNumber;
+    }
+
+    /**
+     * @return Zobrist hash of the disks currently on the board.
+     */
+    protected long getHash() {
+        return mHash;
+    }
+
+    /**
+     * Same hash for a position and for its left-right mirror, so that anything cached about
+     * one can also be used for the other.
+     * <br>Moves cached with it must be mirrored with {@link #mirrorColumn(int)} if
+     * {@link #isCanonicalMirrored()}.
+     * @return the lesser of the Zobrist hashes of the disks on the board and of their mirror.
+     */
+    protected long getCanonicalHash() {
+        return Math.min(mHash, mMirrorHash);
+    }
+
+    /**
+     * @return {@code true} if {@link #getCanonicalHash()} is the hash of the mirrored board,
+     *         {@code false} if it's the hash of the board as it is.
+     */
+    protected boolean isCanonicalMirrored() {
+        return mMirrorHash < mHash;
+    }
+
+    /**
+     * @param column board index of a column.
+     * @return board index of the column at the same distance from the other edge.
+     */
+    protected int mirrorColumn(int column) {
+        return mNumberOfColumns - 1 - column;
+    }
+
+    /**
+     * Query what's at a position on the board.
+     * @param row board row, {@code 0} being the top one.
+     * @param col board column, {@code 0} being the leftmost one.
+     * @return {@link #IS_FREE} / {@link #PLAYER_DISK} / {@link #AI_DISK}
+     */
+    protected int getDiskAt(int row, int col) {
+        int bitIndex = BitBoard.bitIndex(mNumberOfRows, row, col);
+        if (BitBoard.isSet(mDiskBits[0], mDiskBits[1], bitIndex)) {
+            return PLAYER_DISK;
+        }
+        if (BitBoard.isSet(mDiskBits[2], mDiskBits[3], bitIndex)) {
+            return AI_DISK;
+        }
+        return IS_FREE;
+    }
+
+    /**
+     * @return evaluation of the disks currently on the board, always up to date.
+     *         {@code null} while evaluation is disabled.
+     */
+    protected WindowEvaluator getEvaluator() {
+        return mEvaluator;
+    }
+
+    protected void modifyNoOfDisksToWin(int newValue) {
+        mDisksNeededForWin = newValue;
+        mWinningLines = WinningLines.forGeometry(mNumberOfRows, mNumberOfColumns, newValue);
+
+        if (mEvaluator != null) {
+            // Windows have another length now, count the disks already on the board again.
+            evaluateFromScratch();
+        }
+    }
+
+    /**
+     * Keeping the evaluation up to date is most of the cost of storing disks, so it can be
+     * disabled for boards which are never evaluated - like those of playouts.
+     * @param enabled {@code false} to stop keeping {@link #getEvaluator()} up to date,
+     *                {@code true} to start again, with the disks already on the board.
+     */
+    protected void setEvaluationEnabled(boolean enabled) {
+        if (!enabled) {
+            mEvaluator = null;
+        }
+        else if (mEvaluator == null) {
+            evaluateFromScratch();
+        }
+    }
+
+    private void evaluateFromScratch() {
+        mEvaluator = new WindowEvaluator(mNumberOfRows, mNumberOfColumns, mDisksNeededForWin);
+        for (int bitIndex = 0; bitIndex < 2 * BitBoard.WORD_SIZE; bitIndex++) {
+            if (BitBoard.isSet(mDiskBits[0], mDiskBits[1], bitIndex)) {
+                mEvaluator.diskAdded(PLAYERS.PLAYER, bitIndex);
+            }
+            else if (BitBoard.isSet(mDiskBits[2], mDiskBits[3], bitIndex)) {
+                mEvaluator.diskAdded(PLAYERS.AI, bitIndex);
+            }
+        }
+    }
+
+}
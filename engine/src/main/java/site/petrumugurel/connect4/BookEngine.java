@@ -0,0 +1,89 @@
+package site.petrumugurel.connect4;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+
+/**
+ * {@link AIEngine} playing the moves of {@link OpeningBook}s as long as the game is in one of
+ * them, and the moves of another engine afterwards.
+ * <p>Book moves are found by a binary search of the book, so the opening - where searches would
+ * need to be the deepest - is played instantly and at the strength of the offline search.</p>
+ * <p>Games of a geometry having a {@link Tablebase} are played from it instead, perfectly and
+ * from the first move to the last one.</p>
+ */
+public class BookEngine implements AIEngine {
+
+    private final AIEngine          mEngine;
+    /** Books can be added from one thread while another one is searching. */
+    private final List<OpeningBook> mBooks      = new CopyOnWriteArrayList<OpeningBook>();
+    private final List<Tablebase>   mTablebases = new CopyOnWriteArrayList<Tablebase>();
+
+    private volatile boolean mLastMoveFromBook;
+    private int              mBookMoves;
+
+
+    /**
+     * @param engine deciding on the moves of positions no book has.
+     */
+    public BookEngine(AIEngine engine) {
+        mEngine = engine;
+    }
+
+    /**
+     * @param book to be used for all next moves of games of its geometry. If many books cover
+     *             the same geometry the first one added having the position is used.
+     */
+    public void addBook(OpeningBook book) {
+        mBooks.add(book);
+    }
+
+    /**
+     * @param tablebase to be used for all next moves of games of its geometry, before any book.
+     */
+    public void addTablebase(Tablebase tablebase) {
+        mTablebases.add(tablebase);
+    }
+
+    @Override
+    public void setTimeBudget(long millis) {
+        mEngine.setTimeBudget(millis);
+    }
+
+    @Override
+    public int chooseColumn(Board board, Board.PLAYERS side) {
+        for (Tablebase tablebase : mTablebases) {
+            int column = tablebase.bestColumn(board, side);
+            if (column != Tablebase.NOT_FOUND) {
+                mLastMoveFromBook = true;
+                mBookMoves++;
+                return column;
+            }
+        }
+        for (OpeningBook book : mBooks) {
+            int column = book.lookup(board, side);
+            if (column != OpeningBook.NOT_FOUND && !board.isColumnFull(column)) {
+                mLastMoveFromBook = true;
+                mBookMoves++;
+                return column;
+            }
+        }
+        mLastMoveFromBook = false;
+        return mEngine.chooseColumn(board, side);
+    }
+
+    /**
+     * @return {@code true} if the last {@link #chooseColumn(Board, Board.PLAYERS)} found its
+     *         move in a book or a tablebase, without asking the engine.
+     */
+    public boolean isLastMoveFromBook() {
+        return mLastMoveFromBook;
+    }
+
+    /**
+     * @return how many moves were found in books and tablebases so far.
+     */
+    public int getBookMoves() {
+        return mBookMoves;
+    }
+}
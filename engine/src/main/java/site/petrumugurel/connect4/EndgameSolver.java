@@ -0,0 +1,296 @@
+package site.petrumugurel.connect4;
+
+
+/**
+ * Finds the exact result of a position - win, draw or loss with perfect play from both sides -
+ * and a move which keeps it.
+ * <p>Meant for the end of games, where few positions are left free: instead of scoring
+ * positions at a horizon the whole tree is searched, only telling wins, draws and losses apart.
+ * With just three values every search is done with a null window - first asking "is it a
+ * win?", then, if not, "is it at least a draw?" - which cuts off far more than searching for
+ * the exact value at once.</p>
+ * <p>Threats - free positions which would complete a line - are found on the bitboards and
+ * prune most of the tree:
+ * <br>&#09; a side which can complete a line right away wins;
+ * <br>&#09; a side facing two immediate threats of the opponent loses, facing one it must
+ *           block it;
+ * <br>&#09; moves right under a threat of the opponent are never tried, they lose.
+ * <br>The moves left are tried in the order of how many threats they create.</p>
+ * <p>Results are cached in a {@link TranspositionTable}, which can be shared with a
+ * {@link NegamaxEngine} - the solver's entries are kept apart from the engine's ones. The
+ * solver never clears the table, as other threads might be using it meanwhile: whoever owns
+ * it must clear it before solving a board of another geometry, as the engine does.</p>
+ */
+public class EndgameSolver {
+
+    /** Results, from the point of view of the side to move. */
+    public static final int WIN     = 1;
+    public static final int DRAW    = 0;
+    public static final int LOSS    = -1;
+    /** Result of a {@link #solve(Board, Board.PLAYERS)} stopped before finding the result. */
+    public static final int UNKNOWN = 2;
+
+    /** Every how many nodes to check if a budget ran out. Must be a power of 2. */
+    private static final int CLOCK_CHECK_INTERVAL = 1024;
+
+    /** Mixed into the hash of every stored position, so its entries never meet the engine's. */
+    private static final long SOLVER_KEY = 0x5DEECE66DL * 0x9E3779B97F4A7C15L;
+
+    private final TranspositionTable mTable;
+    /** Moves of every ply, in the order to try them. */
+    private final int[][] mMoves  = new int[NegamaxEngine.MAX_PLIES + 1][Board.MAX_COLUMNS];
+    /** How many threats every move of {@link #mMoves} creates. */
+    private final int[][] mThreatsCreated
+            = new int[NegamaxEngine.MAX_PLIES + 1][Board.MAX_COLUMNS];
+    private final long[]  mThreats = new long[2];
+    private int[]         mCenterOrder = new int[0];
+
+    private long    mNodes;
+    private long    mNodeBudget;
+    /** {@link System#nanoTime()} when to stop, {@code 0} for no time limit. */
+    private long    mDeadline;
+    private boolean mAborted;
+    private int     mBestColumn;
+    private volatile boolean mStopRequested;
+
+
+    /**
+     * @param table where to cache results between positions and between moves.
+     */
+    public EndgameSolver(TranspositionTable table) {
+        mTable = table;
+    }
+
+    /**
+     * Limit every next {@link #solve(Board, Board.PLAYERS)}. When a budget runs out, or when
+     * the thread is interrupted, {@link #UNKNOWN} is returned.
+     * @param deadline {@link System#nanoTime()} when to stop, {@code 0} for no time limit.
+     * @param nodeBudget after how many visited positions to stop, {@code 0} for no limit.
+     */
+    public void setBudgets(long deadline, long nodeBudget) {
+        mDeadline = deadline;
+        mNodeBudget = nodeBudget;
+    }
+
+    /**
+     * Find the result of a position with perfect play from both sides.
+     * @param board position to solve, which must not be over yet. Left unchanged.
+     * @param side who's to move in {@code board}.
+     * @return {@link #WIN}, {@link #DRAW} or {@link #LOSS} for {@code side},
+     *         {@link #UNKNOWN} if a budget ran out first.
+     * @throws IllegalArgumentException if the game is already over.
+     */
+    public int solve(Board board, Board.PLAYERS side) throws IllegalArgumentException {
+        if (board.getWinner() != null || board.isDraw()) {
+            throw new IllegalArgumentException("The game is already over");
+        }
+        mNodes = 0;
+        mAborted = false;
+        if (mCenterOrder.length != board.getNumberOfColumns()) {
+            mCenterOrder = MoveOrderer.centerFirstOrder(board.getNumberOfColumns());
+        }
+
+        if (board.isDeadDraw()) {
+            mBestColumn = firstPlayable(board.getPlayableColumns());
+            return DRAW;
+        }
+
+        // Only wins matter here, not the evaluation the board would keep up to date.
+        Board solvedBoard = new Board(board);
+        solvedBoard.setEvaluationEnabled(false);
+        if (negamax(solvedBoard, side, DRAW, WIN, 0) > DRAW) {
+            return mAborted ? UNKNOWN : WIN;
+        }
+        if (mAborted) {
+            return UNKNOWN;
+        }
+        int result = negamax(solvedBoard, side, LOSS, DRAW, 0) >= DRAW ? DRAW : LOSS;
+        return mAborted ? UNKNOWN : result;
+    }
+
+    /**
+     * @return a column keeping the result found by the last {@link #solve(Board, Board.PLAYERS)}.
+     *         If it was a loss, a column not losing right away if there is one.
+     */
+    public int getBestColumn() {
+        return mBestColumn;
+    }
+
+    /**
+     * @return how many positions the last {@link #solve(Board, Board.PLAYERS)} visited.
+     */
+    public long getNodes() {
+        return mNodes;
+    }
+
+    /**
+     * Ask a solve running on another thread to stop as soon as possible.
+     * <br>Stays in effect until {@link #allowSearching()}.
+     */
+    void stop() {
+        mStopRequested = true;
+    }
+
+    /**
+     * Undo {@link #stop()}.
+     */
+    void allowSearching() {
+        mStopRequested = false;
+    }
+
+
+    /**
+     * Null-window friendly alpha-beta search over win / draw / loss values of a position in
+     * which {@code side} has no line completed yet.
+     * @return result for {@code side}, only exact if inside {@code (alpha, beta)}.
+     */
+    private int negamax(Board board, Board.PLAYERS side, int alpha, int beta, int ply) {
+        if ((++mNodes & (CLOCK_CHECK_INTERVAL - 1)) == 0) {
+            checkBudgets();
+        }
+        if (mAborted) {
+            return DRAW;    // whatever is returned now will be ignored
+        }
+
+        int playable = board.getPlayableColumns();
+        if (playable == 0) {
+            return DRAW;    // no move made so far won, so the full board is a draw
+        }
+        for (int columns = playable; columns != 0; columns &= columns - 1) {
+            int column = Integer.numberOfTrailingZeros(columns);
+            if (board.isWinningMove(side, column)) {
+                setBestColumn(ply, column);
+                return WIN;
+            }
+        }
+
+        // Columns where the opponent would win next move, and those giving it a win on top.
+        board.findThreats(NegamaxEngine.opponent(side), mThreats);
+        long threatsLow = mThreats[0];
+        long threatsHigh = mThreats[1];
+        int rows = board.getNumberOfRows();
+        int mustBlock = 0;
+        int safe = 0;
+        for (int columns = playable; columns != 0; columns &= columns - 1) {
+            int column = Integer.numberOfTrailingZeros(columns);
+            int height = board.getColumnHeight(column);
+            int bitIndex = column * (rows + 1) + height;
+            if (BitBoard.isSet(threatsLow, threatsHigh, bitIndex)) {
+                mustBlock |= 1 << column;
+            }
+            if (height + 1 == rows || !BitBoard.isSet(threatsLow, threatsHigh, bitIndex + 1)) {
+                safe |= 1 << column;
+            }
+        }
+        int candidates = safe;
+        if (mustBlock != 0) {
+            candidates = (mustBlock & (mustBlock - 1)) != 0 ? 0 : mustBlock & safe;
+        }
+        if (candidates == 0) {
+            setBestColumn(ply, firstPlayable(mustBlock != 0 ? mustBlock : playable));
+            return LOSS;
+        }
+
+        long hash = board.getCanonicalHash() ^ Zobrist.sideToMoveKey(side) ^ SOLVER_KEY;
+        long entry = mTable.probe(hash);
+        if (entry != TranspositionTable.NOT_FOUND && ply > 0) {
+            int score = TranspositionTable.score(entry);
+            int bound = TranspositionTable.bound(entry);
+            if (bound == TranspositionTable.EXACT
+                || (bound == TranspositionTable.LOWER_BOUND && score >= beta)
+                || (bound == TranspositionTable.UPPER_BOUND && score <= alpha)) {
+                return score;
+            }
+        }
+
+        int movesCount = orderMoves(board, side, candidates, ply);
+        int[] moves = mMoves[ply];
+        int originalAlpha = alpha;
+        int best = LOSS - 1;
+        setBestColumn(ply, moves[0]);
+        Board.PLAYERS opponent = NegamaxEngine.opponent(side);
+        for (int i = 0; i < movesCount; i++) {
+            board.storeNewDisk(side, moves[i]);
+            int score = -negamax(board, opponent, -beta, -alpha, ply + 1);
+            board.undoMove();
+            if (score > best) {
+                best = score;
+                if (best > alpha) {
+                    alpha = best;
+                    setBestColumn(ply, moves[i]);
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        if (mAborted) {
+            return DRAW;
+        }
+        int bound = best <= originalAlpha ? TranspositionTable.UPPER_BOUND
+                  : best >= beta          ? TranspositionTable.LOWER_BOUND
+                                          : TranspositionTable.EXACT;
+        int emptyPositions = rows * board.getNumberOfColumns() - board.getMovesNumber();
+        mTable.store(hash, emptyPositions, best, bound, -1);
+        return best;
+    }
+
+    /**
+     * Order the candidate moves, those creating the most threats first and the central ones
+     * first among those creating as many.
+     * @return how many moves were stored in {@code mMoves[ply]}.
+     */
+    private int orderMoves(Board board, Board.PLAYERS side, int candidates, int ply) {
+        int[] moves = mMoves[ply];
+        int[] threatsCreated = mThreatsCreated[ply];
+        int count = 0;
+        for (int column : mCenterOrder) {
+            if ((candidates & (1 << column)) == 0) {
+                continue;
+            }
+            board.storeNewDisk(side, column);
+            board.findThreats(side, mThreats);
+            board.undoMove();
+            int threats = Long.bitCount(mThreats[0]) + Long.bitCount(mThreats[1]);
+
+            // Insertion sort, stable so the center order is kept between equals.
+            int i = count++;
+            while (i > 0 && threatsCreated[i - 1] < threats) {
+                moves[i] = moves[i - 1];
+                threatsCreated[i] = threatsCreated[i - 1];
+                i--;
+            }
+            moves[i] = column;
+            threatsCreated[i] = threats;
+        }
+        return count;
+    }
+
+    private void setBestColumn(int ply, int column) {
+        if (ply == 0) {
+            mBestColumn = column;
+        }
+    }
+
+    /**
+     * @return the most central of the columns set in {@code columns}.
+     */
+    private int firstPlayable(int columns) {
+        for (int column : mCenterOrder) {
+            if ((columns & (1 << column)) != 0) {
+                return column;
+            }
+        }
+        return -1;
+    }
+
+    private void checkBudgets() {
+        if (mStopRequested
+            || (mNodeBudget > 0 && mNodes >= mNodeBudget)
+            || (mDeadline != 0 && System.nanoTime() - mDeadline >= 0)
+            || Thread.currentThread().isInterrupted()) {
+            mAborted = true;
+        }
+    }
+}
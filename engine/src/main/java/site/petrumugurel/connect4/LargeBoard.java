@@ -0,0 +1,320 @@
+package site.petrumugurel.connect4;
+
+import java.util.Arrays;
+
+
+/**
+ * Board for Connect-N games on boards too big for {@link Board} - up to {@link #MAX_ROWS} x
+ * {@link #MAX_COLUMNS} - with any number of disks needed to win.
+ * <p>Disks are kept as the bitboards of {@link BitBoard}, {@code rows + 1} bits a column, but
+ * in as many words as the board needs - {@code 65} for {@code 64 x 64}. Precomputing the lines
+ * through every position as {@link WinningLines} does would take tens of megabytes for the
+ * biggest boards, so lines are found word-parallel instead: {@code board & board >> shift}
+ * leaves the first bit of every pair of disks {@code shift} apart, and repeating it with
+ * doubling shifts finds lines of {@code k} disks in {@code log2(k)} steps, for all positions of
+ * a word at once.</p>
+ * <p>After a move only the words holding lines through the new disk are checked - at most
+ * {@code (k - 1) * (rows + 2)} bits to either side of it - so checking for winners costs the
+ * same whatever the number of columns and grows only with the rows and with {@code k}. Their
+ * cost, compared with checking the whole board, is measured by
+ * {@code LargeBoardBenchmark}.</p>
+ * <p>Like {@link Board}, the game ends with the first line - disks can still be stored and
+ * taken back afterwards but no more lines are looked for.</p>
+ */
+public class LargeBoard {
+
+    private static final int MIN_ROWS         = 4;
+    static final int         MAX_ROWS         = 64;
+    private static final int MIN_COLUMNS      = 4;
+    static final int         MAX_COLUMNS      = 64;
+    private static final int MIN_DISKS_TO_WIN = 2;
+
+    private static final int HISTORY_COLUMN_MASK  = 0x3F;
+    private static final int HISTORY_AI_MOVE      = 0x40;
+    private static final int HISTORY_WINNER_SHIFT = 7;
+    private static final int HISTORY_WAS_DRAW     = 0x200;
+
+    /**
+     * Bitboard of every side, {@code [PLAYERS.ordinal()][word]}, bit {@code i} of the board
+     * being bit {@code i % 64} of word {@code i / 64}.
+     */
+    private final long[][] mDiskBits;
+    /** How many disks are in each column. */
+    private final int[]    mColumnHeights;
+    /** Bit {@code i} is set while column {@code i} still has free spaces. */
+    private long           mPlayableColumns;
+    /**
+     * Every move made since the board was cleared, packed in an {@code int}:
+     * <br>&#09; bits 0 - 5 &nbsp; the column;
+     * <br>&#09; {@link #HISTORY_AI_MOVE} &nbsp; set if the disk is the AI's;
+     * <br>&#09; bits 7 - 8 &nbsp; the winner before the move, {@code 0} for none or
+     *           {@code ordinal + 1};
+     * <br>&#09; {@link #HISTORY_WAS_DRAW} &nbsp; set if the game was a draw before the move.
+     */
+    private final int[]    mMoveHistory;
+    /** Shift between consecutive disks of a line in every direction, see {@link BitBoard}. */
+    private final int[]    mShifts;
+    /** Working copy of the words checked for lines. */
+    private final long[]   mRuns;
+
+    private final int mNumberOfRows;
+    private final int mNumberOfColumns;
+    private final int mDisksNeededForWin;
+    /** Bits of the board, padding ones included. */
+    private final int mBits;
+
+    private Board.PLAYERS mWinner      = null;
+    private boolean       mIsDraw      = false;
+    private int           mMovesNumber = 0;
+
+
+    /**
+     * Create a board of any size between {@link #MIN_ROWS} x {@link #MIN_COLUMNS} and
+     * {@link #MAX_ROWS} x {@link #MAX_COLUMNS}.
+     * @param rows how many rows the board will have.
+     * @param columns how many columns the board will have.
+     * @param disksNeededForWin how many disks in a straight line are needed to win,
+     *                          at least {@link #MIN_DISKS_TO_WIN}.
+     * @throws IllegalArgumentException for too few/many rows or columns, or if the line of
+     *                                  disks needed to win doesn't fit on the board.
+     */
+    public LargeBoard(int rows, int columns, int disksNeededForWin)
+            throws IllegalArgumentException {
+        if (!(rows >= MIN_ROWS && columns >= MIN_COLUMNS)) {
+            throw new IllegalArgumentException("Minimum " + MIN_ROWS + " rows and "
+                                               + MIN_COLUMNS + " columns");
+        }
+        if (!(rows <= MAX_ROWS && columns <= MAX_COLUMNS)) {
+            throw new IllegalArgumentException("Maximum " + MAX_ROWS + " rows and "
+                                               + MAX_COLUMNS + " columns.");
+        }
+        if (!(disksNeededForWin >= MIN_DISKS_TO_WIN)) {
+            throw new IllegalArgumentException("A line of at least " + MIN_DISKS_TO_WIN
+                                               + " disks is needed");
+        }
+        if (disksNeededForWin >= rows || disksNeededForWin >= columns) {
+            throw new IllegalArgumentException("More disks needed to win than spaces on the board");
+        }
+
+        mNumberOfRows = rows;
+        mNumberOfColumns = columns;
+        mDisksNeededForWin = disksNeededForWin;
+        mBits = columns * (rows + 1);
+        int words = (mBits + BitBoard.WORD_SIZE - 1) / BitBoard.WORD_SIZE;
+        mDiskBits = new long[2][words];
+        mRuns = new long[words];
+        mColumnHeights = new int[columns];
+        mMoveHistory = new int[rows * columns];
+        mShifts = BitBoard.directionShifts(rows);
+
+        clearBoard();
+    }
+
+
+    /**
+     * Take all disks off the board.
+     */
+    protected void clearBoard() {
+        Arrays.fill(mDiskBits[0], 0L);
+        Arrays.fill(mDiskBits[1], 0L);
+        Arrays.fill(mColumnHeights, 0);
+        mPlayableColumns = mNumberOfColumns == Long.SIZE ? -1L : (1L << mNumberOfColumns) - 1;
+        mMovesNumber = 0;
+        mIsDraw = false;
+        mWinner = null;
+    }
+
+    /**
+     * Store a new disk in the lowest free row of a column, then check for a winner or a draw.
+     * @param player on behalf of whom the disk is stored.
+     * @param columnToInsertInto board index of the column.
+     * @return board index of the row where the disk was stored<br>
+     *         {@link Board#COLUMN_FULL} if the column has no free spaces.
+     */
+    protected int storeNewDisk(Board.PLAYERS player, int columnToInsertInto) {
+        int height = mColumnHeights[columnToInsertInto];
+        if (height == mNumberOfRows) {
+            return Board.COLUMN_FULL;
+        }
+
+        int bitIndex = columnToInsertInto * (mNumberOfRows + 1) + height;
+        long[] bits = mDiskBits[player.ordinal()];
+        bits[bitIndex >>> 6] |= 1L << (bitIndex & (BitBoard.WORD_SIZE - 1));
+        if (++mColumnHeights[columnToInsertInto] == mNumberOfRows) {
+            mPlayableColumns &= ~(1L << columnToInsertInto);
+        }
+
+        mMoveHistory[mMovesNumber++] = columnToInsertInto
+                | (player == Board.PLAYERS.AI ? HISTORY_AI_MOVE : 0)
+                | (mWinner == null ? 0 : mWinner.ordinal() + 1) << HISTORY_WINNER_SHIFT
+                | (mIsDraw ? HISTORY_WAS_DRAW : 0);
+        if (mWinner == null && !mIsDraw) {
+            if (mMovesNumber >= 2 * mDisksNeededForWin - 1 && isLineThrough(bits, bitIndex)) {
+                mWinner = player;
+            }
+            else if (mMovesNumber == mNumberOfRows * mNumberOfColumns) {
+                mIsDraw = true;
+            }
+        }
+        return mNumberOfRows - 1 - height;
+    }
+
+    /**
+     * Take back the last stored disk, restoring the board to exactly how it was before it.
+     * @return position from where the disk was removed, packed as by
+     *         {@link Board#packPosition(int, int)}.<br>
+     *         {@link Board#NO_MOVE} if there are no disks on the board.
+     */
+    protected int undoMove() {
+        if (mMovesNumber == 0) {
+            return Board.NO_MOVE;
+        }
+
+        int move = mMoveHistory[--mMovesNumber];
+        int column = move & HISTORY_COLUMN_MASK;
+        int height = --mColumnHeights[column];
+        int bitIndex = column * (mNumberOfRows + 1) + height;
+        int side = (move & HISTORY_AI_MOVE) != 0 ? 1 : 0;
+        mDiskBits[side][bitIndex >>> 6] &= ~(1L << (bitIndex & (BitBoard.WORD_SIZE - 1)));
+        mPlayableColumns |= 1L << column;
+
+        int previousWinner = (move >>> HISTORY_WINNER_SHIFT) & 0x03;
+        mWinner = previousWinner == 0 ? null : Board.PLAYERS.values()[previousWinner - 1];
+        mIsDraw = (move & HISTORY_WAS_DRAW) != 0;
+
+        return Board.packPosition(mNumberOfRows - 1 - height, column);
+    }
+
+    /**
+     * Look for a line of a side anywhere on the board, checking all words.
+     * <br>Only needed for boards set up in some other way than by playing a game on them -
+     * {@link #getWinner()} is kept up to date with every move.
+     * @return {@code true} if {@code player} has a line of
+     *         {@link #getDisksNeededForWin()} disks.
+     */
+    protected boolean hasLine(Board.PLAYERS player) {
+        long[] bits = mDiskBits[player.ordinal()];
+        for (int shift : mShifts) {
+            if (hasRun(bits, shift, 0, bits.length - 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check the lines through a new disk, supposing there was no line before it.
+     * @param bits bitboard of the side which stored the disk.
+     * @param bitIndex position of the new disk.
+     */
+    private boolean isLineThrough(long[] bits, int bitIndex) {
+        for (int shift : mShifts) {
+            // Lines through the disk don't reach further than this to either side.
+            int span = (mDisksNeededForWin - 1) * shift;
+            int firstWord = Math.max(0, bitIndex - span) >>> 6;
+            int lastWord = Math.min(mBits - 1, bitIndex + span) >>> 6;
+            if (hasRun(bits, shift, firstWord, lastWord)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Look for {@link #mDisksNeededForWin} disks {@code shift} bits apart from each other, all
+     * of them in some words of a bitboard.
+     * @param firstWord first word to check.
+     * @param lastWord last word to check, inclusive.
+     */
+    private boolean hasRun(long[] bits, int shift, int firstWord, int lastWord) {
+        int words = lastWord - firstWord + 1;
+        System.arraycopy(bits, firstWord, mRuns, 0, words);
+        // Bit i of mRuns is set while a run of "length" disks starts at bit i.
+        for (int length = 1; length < mDisksNeededForWin; ) {
+            int step = Math.min(length, mDisksNeededForWin - length);
+            if (!andShiftedRight(mRuns, words, step * shift)) {
+                return false;
+            }
+            length += step;
+        }
+        return true;
+    }
+
+    /**
+     * {@code words &= words >>> shift}, the words being one bitboard of {@code count} words.
+     * @return {@code true} if any bit is left set.
+     */
+    private static boolean andShiftedRight(long[] words, int count, int shift) {
+        int wordShift = shift >>> 6;
+        int bitShift = shift & (BitBoard.WORD_SIZE - 1);
+        long any = 0;
+        // Every word only reads itself and the words above it, which are not changed yet.
+        for (int i = 0; i < count; i++) {
+            int source = i + wordShift;
+            long shifted = source < count ? words[source] >>> bitShift : 0;
+            if (bitShift != 0 && source + 1 < count) {
+                shifted |= words[source + 1] << (BitBoard.WORD_SIZE - bitShift);
+            }
+            words[i] &= shifted;
+            any |= words[i];
+        }
+        return any != 0;
+    }
+
+    /**
+     * Query what's at a position on the board.
+     * @param row board row, {@code 0} being the top one.
+     * @param col board column, {@code 0} being the leftmost one.
+     * @return {@link Board#IS_FREE} / {@link Board#PLAYER_DISK} / {@link Board#AI_DISK}
+     */
+    protected int getDiskAt(int row, int col) {
+        int bitIndex = col * (mNumberOfRows + 1) + (mNumberOfRows - 1 - row);
+        long mask = 1L << (bitIndex & (BitBoard.WORD_SIZE - 1));
+        if ((mDiskBits[0][bitIndex >>> 6] & mask) != 0) {
+            return Board.PLAYER_DISK;
+        }
+        if ((mDiskBits[1][bitIndex >>> 6] & mask) != 0) {
+            return Board.AI_DISK;
+        }
+        return Board.IS_FREE;
+    }
+
+    protected Board.PLAYERS getWinner() {
+        return mWinner;
+    }
+
+    protected boolean isDraw() {
+        return mIsDraw;
+    }
+
+    protected boolean isColumnFull(int column) {
+        return (mPlayableColumns & (1L << column)) == 0;
+    }
+
+    /**
+     * @return bitmask in which bit {@code i} is set if column {@code i} is not full.
+     */
+    protected long getPlayableColumns() {
+        return mPlayableColumns;
+    }
+
+    protected int getColumnHeight(int column) {
+        return mColumnHeights[column];
+    }
+
+    protected int getNumberOfRows() {
+        return mNumberOfRows;
+    }
+
+    protected int getNumberOfColumns() {
+        return mNumberOfColumns;
+    }
+
+    protected int getDisksNeededForWin() {
+        return mDisksNeededForWin;
+    }
+
+    protected int getMovesNumber() {
+        return mMovesNumber;
+    }
+}
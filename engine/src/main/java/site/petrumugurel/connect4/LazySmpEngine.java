@@ -0,0 +1,225 @@
+package site.petrumugurel.connect4;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+
+/**
+ * {@link AIEngine} which searches on many cores at once using "Lazy SMP".
+ * <p>Every thread runs its own iteratively deepened {@link NegamaxEngine} search of the same
+ * position, all sharing one lock-free {@link TranspositionTable}. Helpers start at different
+ * depths so they don't all search the same nodes at the same time; the results they store
+ * then let the main search - the one running on the calling thread - skip work. The move
+ * played is always the one found by the main search.</p>
+ * <p>Helpers run on a {@link ForkJoinPool} owned by the engine, which should be released
+ * through {@link #shutdown()} once the engine is not needed anymore.</p>
+ */
+public class LazySmpEngine implements AIEngine {
+
+    private final ForkJoinPool       mPool;
+    private final TranspositionTable mTable;
+    /** The first one searches on the calling thread, all others on {@link #mPool}. */
+    private final NegamaxEngine[]    mSearchers;
+    private final Future<?>[]        mHelperSearches;
+    private volatile SearchMetrics   mLastMetrics;
+    private SearchMetrics.Listener   mListener;
+
+
+    /**
+     * Construct a {@link LazySmpEngine} using all available cores, searching up to
+     * {@link NegamaxEngine#DEFAULT_DEPTH} moves ahead.
+     */
+    public LazySmpEngine() {
+        this(Runtime.getRuntime().availableProcessors(), NegamaxEngine.DEFAULT_DEPTH,
+             new TranspositionTable(NegamaxEngine.DEFAULT_TABLE_ENTRIES));
+    }
+
+    /**
+     * @param threads how many threads to search on, including the calling one.
+     * @param maxDepth how many moves ahead to search at most. Must be at least 1.
+     * @param table shared by all threads to cache search results.
+     * @throws IllegalArgumentException for less than 1 thread or a depth lower than 1.
+     */
+    public LazySmpEngine(int threads, int maxDepth, TranspositionTable table)
+            throws IllegalArgumentException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Need at least one thread to search on");
+        }
+        mTable = table;
+        mSearchers = new NegamaxEngine[threads];
+        for (int i = 0; i < threads; i++) {
+            mSearchers[i] = new NegamaxEngine(maxDepth, 0, table);
+        }
+        mHelperSearches = new Future<?>[threads];
+        mPool = threads > 1 ? new ForkJoinPool(threads - 1) : null;
+    }
+
+    /**
+     * Limit the time every next {@link #chooseColumn(Board, Board.PLAYERS)} can take.
+     * @see NegamaxEngine#setTimeBudget(long)
+     */
+    @Override
+    public void setTimeBudget(long millis) {
+        for (NegamaxEngine searcher : mSearchers) {
+            searcher.setTimeBudget(millis);
+        }
+    }
+
+    /**
+     * Solve the game exactly once at most so many positions are left free, on all threads.
+     * @see NegamaxEngine#setEndgameThreshold(int)
+     */
+    public void setEndgameThreshold(int emptyPositions) throws IllegalArgumentException {
+        for (NegamaxEngine searcher : mSearchers) {
+            searcher.setEndgameThreshold(emptyPositions);
+        }
+    }
+
+    /**
+     * @return result of the game with perfect play, as found by the main thread in the last
+     *         {@link #chooseColumn(Board, Board.PLAYERS)}.
+     * @see NegamaxEngine#getForcedResult()
+     */
+    public int getForcedResult() {
+        return mSearchers[0].getForcedResult();
+    }
+
+    /**
+     * @return how many threads the search runs on.
+     */
+    public int getThreads() {
+        return mSearchers.length;
+    }
+
+    /**
+     * @return how many positions all threads visited in the last
+     *         {@link #chooseColumn(Board, Board.PLAYERS)}.
+     */
+    public long getNodesVisited() {
+        long nodes = 0;
+        for (NegamaxEngine searcher : mSearchers) {
+            nodes += searcher.getNodesVisited();
+        }
+        return nodes;
+    }
+
+    /**
+     * @return the deepest search the main thread completed in the last
+     *         {@link #chooseColumn(Board, Board.PLAYERS)}.
+     */
+    public int getCompletedDepth() {
+        return mSearchers[0].getCompletedDepth();
+    }
+
+    /**
+     * @return metrics of the last {@link #chooseColumn(Board, Board.PLAYERS)}, counting the
+     *         positions of all threads. {@code null} before the first one.
+     */
+    public SearchMetrics getLastMetrics() {
+        return mLastMetrics;
+    }
+
+    /**
+     * @param listener to be given the metrics of every next
+     *                 {@link #chooseColumn(Board, Board.PLAYERS)}, {@code null} for none.
+     */
+    public void setSearchListener(SearchMetrics.Listener listener) {
+        mListener = listener;
+    }
+
+    @Override
+    public int chooseColumn(Board board, Board.PLAYERS side) {
+        mSearchers[0].prepareTable(board);
+
+        for (int i = 1; i < mSearchers.length; i++) {
+            final NegamaxEngine helper = mSearchers[i];
+            final Board helperBoard = new Board(board);
+            final Board.PLAYERS helperSide = side;
+            final int firstDepth = 1 + i % 2;
+            helper.allowSearching();
+            mHelperSearches[i] = mPool.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    return helper.search(helperBoard, helperSide, firstDepth);
+                }
+            });
+        }
+
+        int column = mSearchers[0].search(board, side, 1);
+
+        for (int i = 1; i < mSearchers.length; i++) {
+            mSearchers[i].stop();
+        }
+        // Even if interrupted, wait for the helpers to stop so that they don't keep searching
+        // the old position while the next search starts.
+        boolean interrupted = false;
+        for (int i = 1; i < mSearchers.length; i++) {
+            while (true) {
+                try {
+                    mHelperSearches[i].get();
+                    break;
+                }
+                catch (InterruptedException e) {
+                    interrupted = true;
+                }
+                catch (ExecutionException e) {
+                    throw new RuntimeException("Helper search failed", e.getCause());
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Helpers are done, their counts can be read without any synchronization.
+        SearchMetrics[] helperMetrics = new SearchMetrics[mSearchers.length - 1];
+        for (int i = 1; i < mSearchers.length; i++) {
+            helperMetrics[i - 1] = mSearchers[i].getLastMetrics();
+        }
+        mLastMetrics = SearchMetrics.combine(mSearchers[0].getLastMetrics(), helperMetrics);
+        if (mListener != null) {
+            mListener.onSearchFinished(mLastMetrics);
+        }
+        return column;
+    }
+
+    /**
+     * Release the helper threads. The engine can't be used afterwards.
+     */
+    public void shutdown() {
+        if (mPool != null) {
+            mPool.shutdownNow();
+        }
+    }
+
+    /**
+     * Measure how much faster searching a position to a fixed depth is with this engine's number
+     * of threads compared to a single threaded {@link NegamaxEngine}.
+     * <br>Both searches start with empty transposition tables of the same size as this engine's.
+     * @param board position to search.
+     * @param side who's to move in {@code board}.
+     * @param depth how many moves ahead to search.
+     * @return single threaded search time divided by the multi threaded one.
+     */
+    public double measureSpeedup(Board board, Board.PLAYERS side, int depth) {
+        NegamaxEngine single
+                = new NegamaxEngine(depth, 0, new TranspositionTable(mTable.getCapacity()));
+        long start = System.nanoTime();
+        single.chooseColumn(board, side);
+        long singleTime = System.nanoTime() - start;
+
+        LazySmpEngine parallel = new LazySmpEngine(
+                mSearchers.length, depth, new TranspositionTable(mTable.getCapacity()));
+        try {
+            start = System.nanoTime();
+            parallel.chooseColumn(board, side);
+            long parallelTime = System.nanoTime() - start;
+            return (double) singleTime / Math.max(parallelTime, 1);
+        }
+        finally {
+            parallel.shutdown();
+        }
+    }
+}
@@ -0,0 +1,407 @@
+package site.petrumugurel.connect4;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * {@link AIEngine} using Monte Carlo Tree Search - UCT - which needs no evaluation of the
+ * positions, just many games played to the end.
+ * <p>Every iteration walks down the tree choosing the child with the best UCB1 bound, plays a
+ * random game - a playout - from the first position not yet in the tree, then updates the
+ * visits and results of all positions walked through. The tree grows by one level below
+ * positions visited before, and the move played is the most visited one from the root.</p>
+ * <p>Playouts can be lightly guided: always make a winning move if there is one. They never
+ * allocate, playing on the searched board and taking all moves back afterwards.</p>
+ * <p>All threads search the same tree (tree parallelization), which is kept in flat
+ * preallocated arrays updated with atomics - no locks. A thread walking through a position
+ * counts a few lost visits there until its playout is done, a "virtual loss" which steers the
+ * other threads towards other parts of the tree meanwhile.</p>
+ * <p>Helper threads run on a {@link ForkJoinPool} owned by the engine, which should be
+ * released through {@link #shutdown()} once the engine is not needed anymore.</p>
+ */
+public class MctsEngine implements AIEngine {
+
+    /** Playouts made for every move unless otherwise limited, with no time budget. */
+    public static final long DEFAULT_PLAYOUT_BUDGET = 200000;
+
+    /** Most positions the tree can have unless otherwise set - 14 MB worth. */
+    public static final int DEFAULT_MAX_NODES = 1 << 20;
+
+    /** Exploration constant of UCB1 - {@code sqrt(2)} for results in the {@code [0, 1]} range. */
+    private static final double EXPLORATION = 1.41;
+
+    /** Lost visits counted for a position while a thread's playout through it is not done. */
+    private static final int VIRTUAL_LOSS = 3;
+
+    /** Points added to a position for a win of the side which moved into it, half for draws. */
+    private static final int WIN_POINTS  = 2;
+    private static final int DRAW_POINTS = 1;
+
+    /** Stored instead of the first child of a position which wasn't expanded yet. */
+    private static final int UNEXPANDED = -1;
+    /** Stored instead of the first child of a position being expanded by another thread. */
+    private static final int EXPANDING  = -2;
+
+    /** Bytes used by every position of the tree, in all arrays. */
+    private static final int NODE_BYTES = 3 * 4 + 2;
+
+    private final ForkJoinPool mPool;
+    private final Future<?>[]  mHelperSearches;
+    private final int          mThreads;
+    private final long         mPlayoutBudget;
+    private final int          mMaxNodes;
+    /** In milliseconds, {@code 0} meaning the search is only limited by playouts. */
+    private long               mTimeBudget;
+    private boolean            mGuidedPlayouts = true;
+
+    // The tree, indexed by position - the root being 0.
+    private final AtomicIntegerArray mVisits;
+    /** {@link #WIN_POINTS} for every win of the side which moved into the position. */
+    private final AtomicIntegerArray mPoints;
+    /** Index of the first child, all children being next to each other, or a flag. */
+    private final AtomicIntegerArray mFirstChild;
+    private final byte[]             mChildrenCount;
+    /** Column of the move leading to the position. */
+    private final byte[]             mMoves;
+    private final AtomicInteger      mNodesCount = new AtomicInteger();
+
+    private final AtomicLong mPlayouts = new AtomicLong();
+    private volatile boolean mStopRequested;
+    private long             mDeadline;
+    private long             mSearchNanos;
+
+
+    /**
+     * Construct a {@link MctsEngine} using all available cores, with
+     * {@link #DEFAULT_PLAYOUT_BUDGET} and {@link #DEFAULT_MAX_NODES}.
+     */
+    public MctsEngine() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_PLAYOUT_BUDGET,
+             DEFAULT_MAX_NODES);
+    }
+
+    /**
+     * @param threads how many threads to search on, including the calling one.
+     * @param playoutBudget after how many playouts to stop searching. {@code 0} for no limit,
+     *                      in which case there should be a time budget.
+     * @param maxNodes most positions the tree can have. Once full, the search goes on without
+     *                 growing it.
+     * @throws IllegalArgumentException for less than 1 thread, a negative budget or a tree
+     *                                  without room for the root and its children.
+     */
+    public MctsEngine(int threads, long playoutBudget, int maxNodes)
+            throws IllegalArgumentException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Need at least one thread to search on");
+        }
+        if (playoutBudget < 0) {
+            throw new IllegalArgumentException("The playout budget can't be negative");
+        }
+        if (maxNodes <= Board.MAX_COLUMNS) {
+            throw new IllegalArgumentException("The tree needs room for at least "
+                                               + (Board.MAX_COLUMNS + 1) + " positions");
+        }
+        mThreads = threads;
+        mPlayoutBudget = playoutBudget;
+        mMaxNodes = maxNodes;
+        mVisits = new AtomicIntegerArray(maxNodes);
+        mPoints = new AtomicIntegerArray(maxNodes);
+        mFirstChild = new AtomicIntegerArray(maxNodes);
+        mChildrenCount = new byte[maxNodes];
+        mMoves = new byte[maxNodes];
+        mHelperSearches = new Future<?>[threads];
+        mPool = threads > 1 ? new ForkJoinPool(threads - 1) : null;
+    }
+
+    /**
+     * Limit the time every next {@link #chooseColumn(Board, Board.PLAYERS)} can take, on top
+     * of the playout budget.
+     * @param millis how long to search, never less than {@link NegamaxEngine#MIN_TIME_BUDGET}.
+     *               {@code 0} to only be limited by the playout budget.
+     */
+    @Override
+    public void setTimeBudget(long millis) {
+        mTimeBudget = millis > 0 ? Math.max(millis, NegamaxEngine.MIN_TIME_BUDGET) : 0;
+    }
+
+    /**
+     * @param guided {@code true} for playouts always making a winning move if there is one,
+     *               {@code false} for purely random ones - faster but less realistic.
+     */
+    public void setGuidedPlayouts(boolean guided) {
+        mGuidedPlayouts = guided;
+    }
+
+    /**
+     * @return how many playouts the last {@link #chooseColumn(Board, Board.PLAYERS)} made.
+     */
+    public long getPlayouts() {
+        return mPlayouts.get();
+    }
+
+    /**
+     * @return playouts made per second, by all threads, in the last
+     *         {@link #chooseColumn(Board, Board.PLAYERS)}.
+     */
+    public double getPlayoutsPerSecond() {
+        return mPlayouts.get() * 1e9 / Math.max(mSearchNanos, 1);
+    }
+
+    /**
+     * @return how many positions the tree of the last
+     *         {@link #chooseColumn(Board, Board.PLAYERS)} had.
+     */
+    public int getTreeNodes() {
+        return Math.min(mNodesCount.get(), mMaxNodes);
+    }
+
+    /**
+     * @return memory used by the tree, in bytes - allocated once, whatever the positions used.
+     */
+    public long getTreeMemoryBytes() {
+        return (long) mMaxNodes * NODE_BYTES;
+    }
+
+    @Override
+    public int chooseColumn(Board board, Board.PLAYERS side) {
+        long start = System.nanoTime();
+        mDeadline = start + mTimeBudget * 1000000L;
+        mPlayouts.set(0);
+        mStopRequested = false;
+        mNodesCount.set(1);
+        mVisits.set(0, 0);
+        mPoints.set(0, 0);
+        mFirstChild.set(0, UNEXPANDED);
+        expand(0, board);
+        if (mChildrenCount[0] == 1) {
+            return mMoves[mFirstChild.get(0)];     // nothing to think about
+        }
+
+        for (int i = 1; i < mThreads; i++) {
+            final Board helperBoard = playoutBoard(board);
+            final Board.PLAYERS helperSide = side;
+            final long seed = start + i;
+            mHelperSearches[i] = mPool.submit(new Runnable() {
+                @Override
+                public void run() {
+                    search(helperBoard, helperSide, seed);
+                }
+            });
+        }
+        search(playoutBoard(board), side, start);
+        mStopRequested = true;
+
+        // Even if interrupted, wait for the helpers to stop so that they don't keep searching
+        // the old tree while the next search starts.
+        boolean interrupted = false;
+        for (int i = 1; i < mThreads; i++) {
+            while (true) {
+                try {
+                    mHelperSearches[i].get();
+                    break;
+                }
+                catch (InterruptedException e) {
+                    interrupted = true;
+                }
+                catch (ExecutionException e) {
+                    throw new RuntimeException("Helper search failed", e.getCause());
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        mSearchNanos = System.nanoTime() - start;
+
+        int first = mFirstChild.get(0);
+        int best = first;
+        for (int child = first + 1; child < first + mChildrenCount[0]; child++) {
+            if (mVisits.get(child) > mVisits.get(best)) {
+                best = child;
+            }
+        }
+        return mMoves[best];
+    }
+
+    /**
+     * Release the helper threads. The engine can't be used afterwards.
+     */
+    public void shutdown() {
+        if (mPool != null) {
+            mPool.shutdownNow();
+        }
+    }
+
+
+    /**
+     * Playouts only need to know who won, not to evaluate, so they search on copies which
+     * don't keep an evaluation up to date.
+     */
+    private static Board playoutBoard(Board board) {
+        Board copy = new Board(board);
+        copy.setEvaluationEnabled(false);
+        return copy;
+    }
+
+    /**
+     * Keep searching until a budget runs out or the search is stopped.
+     * @param board position of the root, which is left unchanged.
+     * @param side who's to move in {@code board}.
+     * @param seed for the random playouts of this thread.
+     */
+    private void search(Board board, Board.PLAYERS side, long seed) {
+        int[] path = new int[NegamaxEngine.MAX_PLIES + 1];
+        long random = seed * 0x9E3779B97F4A7C15L | 1;   // xorshift state, never 0
+
+        while (!budgetSpent()) {
+            // Selection and expansion.
+            int node = 0;
+            int depth = 0;
+            path[0] = 0;
+            Board.PLAYERS toMove = side;
+            mVisits.addAndGet(0, VIRTUAL_LOSS);
+            while (board.getWinner() == null && !board.isDraw()) {
+                int first = mFirstChild.get(node);
+                if (first == UNEXPANDED
+                    && mVisits.get(node) > VIRTUAL_LOSS     // visited before by someone
+                    && expand(node, board)) {
+                    first = mFirstChild.get(node);
+                }
+                if (first < 0) {
+                    break;      // a leaf, whose playouts decide if it's worth expanding
+                }
+
+                node = selectChild(node, first);
+                path[++depth] = node;
+                mVisits.addAndGet(node, VIRTUAL_LOSS);
+                board.storeNewDisk(toMove, mMoves[node]);
+                toMove = NegamaxEngine.opponent(toMove);
+            }
+
+            // Simulation.
+            int playoutMoves = 0;
+            while (board.getWinner() == null && !board.isDraw()) {
+                random ^= random << 13;
+                random ^= random >>> 7;
+                random ^= random << 17;
+                board.storeNewDisk(toMove, playoutColumn(board, toMove, random));
+                toMove = NegamaxEngine.opponent(toMove);
+                playoutMoves++;
+            }
+            Board.PLAYERS winner = board.getWinner();
+            for (int i = 0; i < playoutMoves + depth; i++) {
+                board.undoMove();
+            }
+
+            // Backpropagation, the side moving into a position alternating with the depth.
+            Board.PLAYERS mover = NegamaxEngine.opponent(side);
+            for (int d = 0; d <= depth; d++) {
+                int visited = path[d];
+                mVisits.addAndGet(visited, 1 - VIRTUAL_LOSS);
+                if (winner == mover) {
+                    mPoints.addAndGet(visited, WIN_POINTS);
+                }
+                else if (winner == null) {
+                    mPoints.addAndGet(visited, DRAW_POINTS);
+                }
+                mover = NegamaxEngine.opponent(mover);
+            }
+            mPlayouts.incrementAndGet();
+        }
+    }
+
+    private boolean budgetSpent() {
+        if (mStopRequested) {
+            return true;
+        }
+        if ((mPlayoutBudget > 0 && mPlayouts.get() >= mPlayoutBudget)
+            || (mTimeBudget > 0 && System.nanoTime() - mDeadline >= 0)
+            || Thread.currentThread().isInterrupted()) {
+            mStopRequested = true;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Add all children of a position to the tree, unless another thread is already doing it
+     * or there's no more room.
+     * @param node position to expand.
+     * @param board the position.
+     * @return {@code true} if expanded.
+     */
+    private boolean expand(int node, Board board) {
+        int playableColumns = board.getPlayableColumns();
+        int count = Integer.bitCount(playableColumns);
+        if (mNodesCount.get() + count > mMaxNodes
+            || !mFirstChild.compareAndSet(node, UNEXPANDED, EXPANDING)) {
+            return false;
+        }
+        int first = mNodesCount.getAndAdd(count);
+        if (first + count > mMaxNodes) {
+            mFirstChild.set(node, UNEXPANDED);  // another thread took the last room
+            return false;
+        }
+
+        for (int child = first; playableColumns != 0; child++) {
+            mVisits.set(child, 0);
+            mPoints.set(child, 0);
+            mFirstChild.set(child, UNEXPANDED);
+            mMoves[child] = (byte) Integer.numberOfTrailingZeros(playableColumns);
+            playableColumns &= playableColumns - 1;
+        }
+        mChildrenCount[node] = (byte) count;
+        mFirstChild.set(node, first);   // publishes the children to the other threads
+        return true;
+    }
+
+    /**
+     * @return the child with the highest UCB1 bound, any not yet visited one first.
+     */
+    private int selectChild(int node, int first) {
+        double logVisits = Math.log(Math.max(mVisits.get(node), 1));
+        int best = first;
+        double bestBound = -1;
+        for (int child = first; child < first + mChildrenCount[node]; child++) {
+            int visits = mVisits.get(child);
+            if (visits == 0) {
+                return child;
+            }
+            double bound = mPoints.get(child) / (2.0 * visits)
+                           + EXPLORATION * Math.sqrt(logVisits / visits);
+            if (bound > bestBound) {
+                bestBound = bound;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Choose the next move of a playout.
+     * @param random bits to choose a random column with.
+     * @return a winning column if playouts are guided and there is one, a random one otherwise.
+     */
+    private int playoutColumn(Board board, Board.PLAYERS side, long random) {
+        int playableColumns = board.getPlayableColumns();
+        if (mGuidedPlayouts) {
+            for (int columns = playableColumns; columns != 0; columns &= columns - 1) {
+                int column = Integer.numberOfTrailingZeros(columns);
+                if (board.isWinningMove(side, column)) {
+                    return column;
+                }
+            }
+        }
+        // Skip a random number of the playable columns, lowest first.
+        for (int skipped = (int) ((random >>> 1) % Integer.bitCount(playableColumns));
+             skipped > 0; skipped--) {
+            playableColumns &= playableColumns - 1;
+        }
+        return Integer.numberOfTrailingZeros(playableColumns);
+    }
+}
@@ -0,0 +1,230 @@
+package site.petrumugurel.connect4;
+
+
+/**
+ * Orders the moves of every searched position so that the best ones are tried first - the
+ * sooner a good move is found the more of the others alpha-beta can prune.
+ * <p>Moves are tried in this order:
+ * <br>&#09;- the best move of a previous search of the same position, from the
+ * {@link TranspositionTable}
+ * <br>&#09;- the killer moves of the ply - the last two moves which caused a cutoff in
+ * another position at the same distance from the root
+ * <br>&#09;- all other moves, those which caused the most cutoffs anywhere in the tree (the
+ * history heuristic) first, ties going to the columns closer to the center.</p>
+ * <p>Keeps statistics about the cutoffs it helped with, which show how good the ordering is:
+ * with perfect ordering every cutoff is caused by the first move tried.</p>
+ * <p>Not thread safe, every searching thread needs its own.</p>
+ */
+public class MoveOrderer {
+
+    /** How many killer moves are remembered for every ply. */
+    static final int KILLERS_PER_PLY = 2;
+
+    /** Deepest ply moves can be ordered for. */
+    private static final int MAX_PLY = NegamaxEngine.MAX_PLIES;
+
+    /** Columns ordered center-out, better moves normally being closer to the center. */
+    private int[] mCenterOrder = new int[0];
+    /** Killer moves, {@code -1} for none, indexed by {ply, slot} - slot 0 is the newest. */
+    private final int[][] mKillers = new int[MAX_PLY + 1][KILLERS_PER_PLY];
+    /** History heuristic scores, indexed by {side ordinal, column}. */
+    private final int[][] mHistory = new int[Board.PLAYERS.values().length][Board.MAX_COLUMNS];
+    /** Ordered moves of every ply, so that no ordering needs to allocate anything. */
+    private final int[][] mMoves = new int[MAX_PLY + 1][Board.MAX_COLUMNS];
+
+    private long mOrderedPositions;
+    private long mCutoffs;
+    private long mFirstMoveCutoffs;
+    /** Sum of the indexes of the moves which caused cutoffs, {@code 0} being the first move. */
+    private long mCutoffMoveIndexes;
+
+
+    public MoveOrderer() {
+        clearKillers();
+    }
+
+    /**
+     * Get ready for a new search.
+     * <br>Killer moves are forgotten while history scores are halved, so that what was learned
+     * searching the previous positions still counts, but less than what's newly learned.
+     * @param columns how many columns the board to be searched has.
+     */
+    void startSearch(int columns) {
+        if (mCenterOrder.length != columns) {
+            mCenterOrder = centerFirstOrder(columns);
+            clearHistory();
+        }
+        else {
+            ageHistory();
+        }
+        clearKillers();
+    }
+
+    /**
+     * Order all legal moves of a position.
+     * @param board position to order the moves of.
+     * @param side who's to move in {@code board}.
+     * @param ply how many moves were made since the root of the search.
+     * @param tableColumn best column found by a previous search of this position,
+     *                    {@code -1} if not known.
+     * @return how many moves were ordered in {@link #getMoves(int) getMoves(ply)}.
+     */
+    int orderMoves(Board board, Board.PLAYERS side, int ply, int tableColumn) {
+        mOrderedPositions++;
+        int[] moves = mMoves[ply];
+        int playable = board.getPlayableColumns();
+        int count = 0;
+
+        if (tableColumn >= 0 && (playable & (1 << tableColumn)) != 0) {
+            moves[count++] = tableColumn;
+            playable &= ~(1 << tableColumn);
+        }
+        for (int killer : mKillers[ply]) {
+            if (killer >= 0 && (playable & (1 << killer)) != 0) {
+                moves[count++] = killer;
+                playable &= ~(1 << killer);
+            }
+        }
+
+        // Insertion sort of the remaining columns, by history score then center-out.
+        int[] history = mHistory[side.ordinal()];
+        int sortedFrom = count;
+        for (int column : mCenterOrder) {
+            if ((playable & (1 << column)) == 0) {
+                continue;
+            }
+            int i = count++;
+            while (i > sortedFrom && history[moves[i - 1]] < history[column]) {
+                moves[i] = moves[i - 1];
+                i--;
+            }
+            moves[i] = column;
+        }
+        return count;
+    }
+
+    /**
+     * @return the moves last ordered for {@code ply} by
+     *         {@link #orderMoves(Board, Board.PLAYERS, int, int)}.
+     */
+    int[] getMoves(int ply) {
+        return mMoves[ply];
+    }
+
+    /**
+     * Learn from a move which caused a beta cutoff.
+     * @param side who made the move.
+     * @param ply how many moves were made since the root of the search.
+     * @param column the move.
+     * @param depth remaining depth of the position where the move was made.
+     * @param moveIndex in which order the move was tried, {@code 0} being the first.
+     */
+    void recordCutoff(Board.PLAYERS side, int ply, int column, int depth, int moveIndex) {
+        mCutoffs++;
+        mCutoffMoveIndexes += moveIndex;
+        if (moveIndex == 0) {
+            mFirstMoveCutoffs++;
+        }
+
+        int[] killers = mKillers[ply];
+        if (killers[0] != column) {
+            System.arraycopy(killers, 0, killers, 1, KILLERS_PER_PLY - 1);
+            killers[0] = column;
+        }
+
+        int[] history = mHistory[side.ordinal()];
+        // Cutoffs close to the root prune bigger subtrees, so they count more.
+        history[column] += depth * depth;
+        if (history[column] > Integer.MAX_VALUE / 2) {
+            ageHistory();
+        }
+    }
+
+    /**
+     * @return for how many positions moves were ordered since the statistics were last reset.
+     */
+    public long getOrderedPositions() {
+        return mOrderedPositions;
+    }
+
+    /**
+     * @return how many beta cutoffs happened since the statistics were last reset.
+     */
+    public long getCutoffs() {
+        return mCutoffs;
+    }
+
+    /**
+     * @return how many of the {@link #getCutoffs() cutoffs} were caused by the first move tried.
+     */
+    public long getFirstMoveCutoffs() {
+        return mFirstMoveCutoffs;
+    }
+
+    /**
+     * @return share of the {@link #getCutoffs() cutoffs} caused by the first move tried,
+     *         in the {@code [0, 1]} range. {@code 0} if there were no cutoffs.
+     */
+    public double getFirstMoveCutoffRate() {
+        return mCutoffs == 0 ? 0 : (double) mFirstMoveCutoffs / mCutoffs;
+    }
+
+    /**
+     * @return on average how many moves were tried before the one causing a cutoff.
+     *         {@code 0} if there were no cutoffs.
+     */
+    public double getAverageCutoffMoveIndex() {
+        return mCutoffs == 0 ? 0 : (double) mCutoffMoveIndexes / mCutoffs;
+    }
+
+    /**
+     * Start counting the statistics from {@code 0} again.
+     */
+    public void resetStatistics() {
+        mOrderedPositions = 0;
+        mCutoffs = 0;
+        mFirstMoveCutoffs = 0;
+        mCutoffMoveIndexes = 0;
+    }
+
+
+    private void clearKillers() {
+        for (int[] killers : mKillers) {
+            for (int slot = 0; slot < KILLERS_PER_PLY; slot++) {
+                killers[slot] = -1;
+            }
+        }
+    }
+
+    /**
+     * Halve all history scores.
+     */
+    private void ageHistory() {
+        for (int[] sideHistory : mHistory) {
+            for (int col = 0; col < sideHistory.length; col++) {
+                sideHistory[col] >>= 1;
+            }
+        }
+    }
+
+    private void clearHistory() {
+        for (int[] sideHistory : mHistory) {
+            for (int col = 0; col < sideHistory.length; col++) {
+                sideHistory[col] = 0;
+            }
+        }
+    }
+
+    /**
+     * Order the columns of a board starting from the center going out, alternating left/right.
+     * @param columns how many columns the board has.
+     * @return board indexes of all columns, center first.
+     */
+    static int[] centerFirstOrder(int columns) {
+        int[] order = new int[columns];
+        for (int i = 0; i < columns; i++) {
+            order[i] = columns / 2 + (i % 2 == 0 ? i / 2 : -(i + 1) / 2);
+        }
+        return order;
+    }
+}
@@ -0,0 +1,483 @@
+package site.petrumugurel.connect4;
+
+
+/**
+ * {@link AIEngine} which searches the game tree using negamax with alpha-beta pruning.
+ * <p>The search is iteratively deepened - first one move ahead, then two and so on - until
+ * either the maximum depth is reached or the time budget / node budget runs out. When a budget
+ * runs out the move found by the last completed depth is used, so a move is always ready and
+ * its quality grows with the time available.</p>
+ * <p>Positions at the search horizon are scored by counting every window of
+ * {@link Board#getDisksNeededForWin()} continuous positions which holds disks of only one side,
+ * the more disks in it the higher the score. This works for any board size and any number of
+ * disks needed to win.</p>
+ * <p>Search results are cached in a {@link TranspositionTable} so positions reached through
+ * different move orders are only searched once. This also lets every new depth start with the
+ * best moves of the previous one - the principal variation is tried first. A position and its
+ * left-right mirror share the same entry, as they are worth the same.</p>
+ * <p>All other moves are ordered by a {@link MoveOrderer}, using the killer moves and history
+ * heuristics.</p>
+ * <p>Once few positions are left free the game is solved instead by an {@link EndgameSolver},
+ * which plays perfectly and tells if the result is already decided - see
+ * {@link #getForcedResult()}. If the solver runs out of budget, or finds that the game is lost
+ * anyway, the usual search is done.</p>
+ * <p>Every search is measured, see {@link #getLastMetrics()}.</p>
+ */
+public class NegamaxEngine implements AIEngine {
+
+    /** Search depth used by the no-args constructor. */
+    public static final int DEFAULT_DEPTH = 6;
+
+    /**
+     * Minimum time budget, in milliseconds. Lower budgets - like the {@code 0} delay of an
+     * instant AI move - still get this much to be able to complete a few depths.
+     */
+    public static final long MIN_TIME_BUDGET = 50;
+
+    /** Every how many nodes to check if the time budget ran out. Must be a power of 2. */
+    private static final int CLOCK_CHECK_INTERVAL = 1024;
+
+    /**
+     * Score of a won position. Evaluations always stay well below it, whatever the board size.
+     * <br>Wins found sooner are scored higher - {@code WIN_SCORE - plies to the win}.
+     */
+    static final int WIN_SCORE = 1 << 28;
+
+    /** Most moves a game can last - the number of positions on the biggest board. */
+    static final int MAX_PLIES = Board.MAX_ROWS * Board.MAX_COLUMNS;
+
+    /** Number of entries of the {@link TranspositionTable} used by default - 4 MB worth. */
+    public static final int DEFAULT_TABLE_ENTRIES = 1 << 18;
+
+    /**
+     * Up to how many free positions the game is solved exactly by default. Enough for a whole
+     * game on the smallest board.
+     */
+    public static final int DEFAULT_ENDGAME_THRESHOLD = 16;
+
+    private final int                mMaxDepth;
+    private final long               mNodeBudget;
+    private final TranspositionTable mTable;
+    /** In milliseconds, {@code 0} meaning the search is only limited by depth and nodes. */
+    private long                     mTimeBudget;
+
+    private long    mNodes;
+    private long    mDeadline;
+    /** Set when a budget ran out during the current depth, the results of which are ignored. */
+    private boolean mAborted;
+    private int     mBestRootColumn;
+    private int     mCompletedDepth;
+    private volatile boolean mStopRequested;
+    private final MoveOrderer mOrderer = new MoveOrderer();
+    private final EndgameSolver mSolver;
+    private int mEndgameThreshold = DEFAULT_ENDGAME_THRESHOLD;
+    private volatile int mForcedResult = EndgameSolver.UNKNOWN;
+    private long mTableProbes;
+    private long mTableHits;
+    private long mTableCollisions;
+    private long mSearchStart;
+    /** Positions visited by the iteration which completed {@link #mCompletedDepth}. */
+    private long mLastIterationNodes;
+    private volatile SearchMetrics mLastMetrics;
+    private SearchMetrics.Listener mListener;
+    /**
+     * Geometry of the last searched board - {rows, columns, disks needed for win}.
+     * <br>Cached results are only valid for the same geometry.
+     */
+    private final int[] mSearchedGeometry = new int[3];
+
+
+    /**
+     * Construct a {@link NegamaxEngine} searching {@link #DEFAULT_DEPTH} moves ahead without
+     * any node budget.
+     */
+    public NegamaxEngine() {
+        this(DEFAULT_DEPTH, 0);
+    }
+
+    /**
+     * @param maxDepth how many moves ahead to search at most. Must be at least 1.
+     * @param nodeBudget after how many visited positions to stop searching deeper.
+     *                   {@code 0} for no limit.
+     * @throws IllegalArgumentException for a depth lower than 1 or a negative budget.
+     */
+    public NegamaxEngine(int maxDepth, long nodeBudget) throws IllegalArgumentException {
+        this(maxDepth, nodeBudget, new TranspositionTable(DEFAULT_TABLE_ENTRIES));
+    }
+
+    /**
+     * @param maxDepth how many moves ahead to search at most. Must be at least 1.
+     * @param nodeBudget after how many visited positions to stop searching deeper.
+     *                   {@code 0} for no limit.
+     * @param table where to cache search results between positions and between moves.
+     * @throws IllegalArgumentException for a depth lower than 1 or a negative budget.
+     */
+    public NegamaxEngine(int maxDepth, long nodeBudget, TranspositionTable table)
+            throws IllegalArgumentException {
+        if (maxDepth < 1) {
+            throw new IllegalArgumentException("Need to search at least one move ahead");
+        }
+        if (nodeBudget < 0) {
+            throw new IllegalArgumentException("The node budget can't be negative");
+        }
+        mMaxDepth = maxDepth;
+        mNodeBudget = nodeBudget;
+        mTable = table;
+        mSolver = new EndgameSolver(table);
+    }
+
+    /**
+     * Limit the time every next {@link #chooseColumn(Board, Board.PLAYERS)} can take.
+     * <br>With a time budget the search goes as deep as the time allows, up to the maximum
+     * depth given to the constructor.
+     * @param millis how long to search, never less than {@link #MIN_TIME_BUDGET}.
+     *               {@code 0} to only be limited by depth and nodes.
+     */
+    @Override
+    public void setTimeBudget(long millis) {
+        mTimeBudget = millis > 0 ? Math.max(millis, MIN_TIME_BUDGET) : 0;
+    }
+
+    /**
+     * Solve the game exactly once at most so many positions are left free.
+     * @param emptyPositions up to how many free positions to solve, {@code 0} to never solve.
+     * @throws IllegalArgumentException for a negative number of positions.
+     */
+    public void setEndgameThreshold(int emptyPositions) throws IllegalArgumentException {
+        if (emptyPositions < 0) {
+            throw new IllegalArgumentException("The number of free positions can't be negative");
+        }
+        mEndgameThreshold = emptyPositions;
+    }
+
+    /**
+     * @return result of the game with perfect play, for the side the last
+     *         {@link #chooseColumn(Board, Board.PLAYERS)} searched for -
+     *         {@link EndgameSolver#WIN}, {@link EndgameSolver#DRAW}, {@link EndgameSolver#LOSS}
+     *         or {@link EndgameSolver#UNKNOWN} if the position was not solved.
+     */
+    public int getForcedResult() {
+        return mForcedResult;
+    }
+
+    /**
+     * @return how many positions the last {@link #chooseColumn(Board, Board.PLAYERS)} visited.
+     */
+    public long getNodesVisited() {
+        return mNodes;
+    }
+
+    /**
+     * @return the deepest search the last {@link #chooseColumn(Board, Board.PLAYERS)} completed.
+     */
+    public int getCompletedDepth() {
+        return mCompletedDepth;
+    }
+
+    /**
+     * @return what orders the moves of this engine's searches, with cutoff statistics about
+     *         the last {@link #chooseColumn(Board, Board.PLAYERS)}.
+     */
+    public MoveOrderer getMoveOrderer() {
+        return mOrderer;
+    }
+
+    /**
+     * @return metrics of the last {@link #chooseColumn(Board, Board.PLAYERS)},
+     *         {@code null} before the first one.
+     */
+    public SearchMetrics getLastMetrics() {
+        return mLastMetrics;
+    }
+
+    /**
+     * @param listener to be given the metrics of every next
+     *                 {@link #chooseColumn(Board, Board.PLAYERS)}, {@code null} for none.
+     */
+    public void setSearchListener(SearchMetrics.Listener listener) {
+        mListener = listener;
+    }
+
+    @Override
+    public int chooseColumn(Board board, Board.PLAYERS side) {
+        prepareTable(board);
+        int column = search(board, side, 1);
+        if (mListener != null) {
+            mListener.onSearchFinished(mLastMetrics);
+        }
+        return column;
+    }
+
+    /**
+     * Clear the {@link TranspositionTable} if {@code board} has another geometry than the
+     * previously searched one, as cached results are only valid for the same geometry.
+     * @param board about to be searched.
+     */
+    void prepareTable(Board board) {
+        if (mSearchedGeometry[0] != board.getNumberOfRows()
+            || mSearchedGeometry[1] != board.getNumberOfColumns()
+            || mSearchedGeometry[2] != board.getDisksNeededForWin()) {
+            mTable.clear();
+            mSearchedGeometry[0] = board.getNumberOfRows();
+            mSearchedGeometry[1] = board.getNumberOfColumns();
+            mSearchedGeometry[2] = board.getDisksNeededForWin();
+        }
+    }
+
+    /**
+     * Iteratively deepened search, without touching the {@link TranspositionTable} other than
+     * through probes and stores - so that many engines can share the same one.
+     * @param board position to search. Moves are tried on it and taken back, so it must not
+     *              be used by other threads meanwhile.
+     * @param side who's to move in {@code board}.
+     * @param firstDepth depth of the first iteration.
+     * @return best column found by the last completed depth,
+     *         {@code -1} if stopped before completing any.
+     */
+    int search(Board board, Board.PLAYERS side, int firstDepth) {
+        mNodes = 0;
+        mTableProbes = 0;
+        mTableHits = 0;
+        mTableCollisions = 0;
+        mLastIterationNodes = 0;
+        mAborted = false;
+        mSearchStart = System.nanoTime();
+        mDeadline = mSearchStart + mTimeBudget * 1000000L;
+        mOrderer.startSearch(board.getNumberOfColumns());
+        mOrderer.resetStatistics();
+
+        int emptyPositions = board.getNumberOfRows() * board.getNumberOfColumns()
+                             - board.getMovesNumber();
+        int maxDepth = Math.min(mMaxDepth, emptyPositions);
+        int bestColumn = -1;
+        mCompletedDepth = 0;
+        mForcedResult = EndgameSolver.UNKNOWN;
+        boolean solved = false;
+        if (emptyPositions <= mEndgameThreshold) {
+            mSolver.setBudgets(mTimeBudget > 0 ? mDeadline : 0, mNodeBudget);
+            int result = mSolver.solve(board, side);
+            mNodes += mSolver.getNodes();
+            mForcedResult = result;
+            if (result == EndgameSolver.WIN || result == EndgameSolver.DRAW) {
+                // Nothing to improve on, searching would only pick among equal moves.
+                bestColumn = mSolver.getBestColumn();
+                mCompletedDepth = emptyPositions;
+                mLastIterationNodes = mNodes;
+                solved = true;
+            }
+        }
+        for (int depth = Math.min(firstDepth, maxDepth); !solved && depth <= maxDepth; depth++) {
+            mBestRootColumn = -1;
+            long iterationStartNodes = mNodes;
+            int score = negamax(board, side, depth, -WIN_SCORE - 1, WIN_SCORE + 1, 0);
+            if (mAborted) {
+                break;
+            }
+            bestColumn = mBestRootColumn;
+            mCompletedDepth = depth;
+            mLastIterationNodes = mNodes - iterationStartNodes;
+            if (Math.abs(score) > WIN_SCORE - MAX_PLIES) {
+                break;  // a forced win or loss was found, searching deeper won't change it
+            }
+        }
+
+        mLastMetrics = new SearchMetrics(mNodes, System.nanoTime() - mSearchStart,
+                                         mCompletedDepth, 1,
+                                         mTableProbes, mTableHits, mTableCollisions,
+                                         mOrderer.getOrderedPositions(), mOrderer.getCutoffs(),
+                                         mOrderer.getFirstMoveCutoffs(), mLastIterationNodes);
+        return bestColumn;
+    }
+
+    /**
+     * Ask a search running on another thread to stop as soon as possible.
+     * <br>Stays in effect until {@link #allowSearching()}.
+     */
+    void stop() {
+        mStopRequested = true;
+        mSolver.stop();
+    }
+
+    /**
+     * Undo {@link #stop()}. To be called before starting a search which might get stopped.
+     */
+    void allowSearching() {
+        mStopRequested = false;
+        mSolver.allowSearching();
+    }
+
+
+    /**
+     * Make a move on the board, score it for the side which made it then take it back.
+     * @param board position before the move.
+     * @param side on behalf of whom the move is made.
+     * @param column where to store the disk.
+     * @param depth remaining depth, including this move.
+     * @param alpha lower bound of the interesting scores.
+     * @param beta upper bound of the interesting scores.
+     * @param ply how many moves were made since the root of the search.
+     * @return score of the move from {@code side}'s point of view.
+     */
+    private int scoreMove(Board board, Board.PLAYERS side, int column,
+                          int depth, int alpha, int beta, int ply) {
+        board.storeNewDisk(side, column);
+        int score;
+        if (board.getWinner() != null) {
+            score = WIN_SCORE - ply - 1;
+        }
+        else if (board.isDraw()) {
+            score = 0;
+        }
+        else {
+            score = -negamax(board, opponent(side), depth - 1, -beta, -alpha, ply + 1);
+        }
+        board.undoMove();
+        return score;
+    }
+
+    /**
+     * Alpha-beta search of a position which is not over yet.
+     * <br>Results are cached in the {@link TranspositionTable}, and the best column of a
+     * previous search of the same position is always tried first, the other columns being
+     * ordered by the {@link MoveOrderer}.
+     * @param board position to search.
+     * @param side who's to move in {@code board}.
+     * @param depth remaining depth.
+     * @param alpha lower bound of the interesting scores.
+     * @param beta upper bound of the interesting scores.
+     * @param ply how many moves were made since the root of the search.
+     * @return score of the position from {@code side}'s point of view.
+     */
+    private int negamax(Board board, Board.PLAYERS side, int depth, int alpha, int beta, int ply) {
+        if ((++mNodes & (CLOCK_CHECK_INTERVAL - 1)) == 0) {
+            checkBudgets();
+        }
+        if (mAborted) {
+            return 0;   // whatever is returned now will be ignored
+        }
+        if (depth == 0) {
+            return evaluate(board, side);
+        }
+
+        // Mirrored positions share their entry, the column being stored as for the canonical one.
+        long hash = board.getCanonicalHash() ^ Zobrist.sideToMoveKey(side);
+        boolean mirrored = board.isCanonicalMirrored();
+        long entry = mTable.probe(hash);
+        int tableColumn = -1;
+        mTableProbes++;
+        if (entry == TranspositionTable.NOT_FOUND) {
+            if (mTable.isBucketTaken(hash)) {
+                mTableCollisions++;
+            }
+        }
+        else {
+            mTableHits++;
+            tableColumn = TranspositionTable.column(entry);
+            if (mirrored && tableColumn >= 0) {
+                tableColumn = board.mirrorColumn(tableColumn);
+            }
+            if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                int score = fromTableScore(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                    || (bound == TranspositionTable.LOWER_BOUND && score >= beta)
+                    || (bound == TranspositionTable.UPPER_BOUND && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        int originalAlpha = alpha;
+        int best = -WIN_SCORE - 1;
+        int bestColumn = -1;
+        int movesCount = mOrderer.orderMoves(board, side, ply, tableColumn);
+        int[] moves = mOrderer.getMoves(ply);
+        for (int i = 0; i < movesCount; i++) {
+            int column = moves[i];
+            int score = scoreMove(board, side, column, depth, alpha, beta, ply);
+            if (score > best) {
+                best = score;
+                bestColumn = column;
+                if (best > alpha) {
+                    alpha = best;
+                    if (alpha >= beta) {
+                        mOrderer.recordCutoff(side, ply, column, depth, i);
+                        break;  // the opponent already has a better option elsewhere
+                    }
+                }
+            }
+        }
+
+        if (mAborted) {
+            return 0;   // cut short, not as deep as it would claim to be
+        }
+        if (ply == 0) {
+            mBestRootColumn = bestColumn;
+        }
+        int bound = best <= originalAlpha ? TranspositionTable.UPPER_BOUND
+                  : best >= beta          ? TranspositionTable.LOWER_BOUND
+                                          : TranspositionTable.EXACT;
+        mTable.store(hash, depth, toTableScore(best, ply), bound,
+                     mirrored && bestColumn >= 0 ? board.mirrorColumn(bestColumn) : bestColumn);
+        return best;
+    }
+
+    /**
+     * Abort the search if it ran out of nodes or time or if its thread was interrupted.
+     * <br>The first depth is never aborted so that there's always a move to make, unless
+     * explicitly asked through {@link #stop()}.
+     */
+    private void checkBudgets() {
+        if (mStopRequested
+            || (mCompletedDepth > 0
+                && ((mNodeBudget > 0 && mNodes >= mNodeBudget)
+                    || (mTimeBudget > 0 && System.nanoTime() - mDeadline >= 0)
+                    || Thread.currentThread().isInterrupted()))) {
+            mAborted = true;
+        }
+    }
+
+    /**
+     * Wins are scored by how far from the root they are, but the table must store them
+     * relative to the stored position, which can be reached at any ply.
+     */
+    private static int toTableScore(int score, int ply) {
+        if (score > WIN_SCORE - MAX_PLIES) {
+            return score + ply;
+        }
+        if (score < -WIN_SCORE + MAX_PLIES) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    /**
+     * Reverse of {@link #toTableScore(int, int)}.
+     */
+    private static int fromTableScore(int score, int ply) {
+        if (score > WIN_SCORE - MAX_PLIES) {
+            return score - ply;
+        }
+        if (score < -WIN_SCORE + MAX_PLIES) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    /**
+     * Static evaluation of a position.
+     * <br>Every window of {@link Board#getDisksNeededForWin()} positions holding only one
+     * side's disks counts {@code 4 ^ (disks - 1)}, for or against {@code side}.
+     * <br>Kept up to date by the board's {@link WindowEvaluator}, so it costs nothing.
+     * @param board position to evaluate.
+     * @param side from whose point of view to evaluate.
+     * @return positive score if {@code side} has better chances, negative otherwise.
+     */
+    static int evaluate(Board board, Board.PLAYERS side) {
+        return board.getEvaluator().getScore(side);
+    }
+
+    static Board.PLAYERS opponent(Board.PLAYERS side) {
+        return side == Board.PLAYERS.PLAYER ? Board.PLAYERS.AI : Board.PLAYERS.PLAYER;
+    }
+}
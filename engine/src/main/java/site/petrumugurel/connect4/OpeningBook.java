@@ -0,0 +1,178 @@
+package site.petrumugurel.connect4;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+
+/**
+ * Best moves of the first plies of games of one geometry, searched deeply once and offline by
+ * {@link OpeningBookGenerator}.
+ * <p>Books are binary files made of a header and the moves of all positions, sorted by the
+ * position key:</p>
+ * <pre>
+ *      header, {@link #HEADER_BYTES} bytes:
+ *          int   {@link #MAGIC}
+ *          byte  {@link #VERSION}
+ *          byte  rows, columns, disks needed for win
+ *          byte  plies covered
+ *          byte  depth searched
+ *          short reserved
+ *          int   number of positions
+ *      every position, {@link #ENTRY_BYTES} bytes:
+ *          long  key - canonical hash of the position XOR the key of the side to move
+ *          byte  best column, as for the canonical position
+ *          byte  reserved
+ * </pre>
+ * <p>Positions and their left-right mirrors share a key - see {@link Board#getCanonicalHash()}.
+ * All numbers are big-endian, as {@link ByteBuffer}s read them by default.</p>
+ * <p>The book is read in place, through a {@link ByteBuffer} - normally a
+ * {@link MappedByteBuffer} - by binary search, so it never gets loaded onto the heap. Reads
+ * don't move the buffer's position so a book can be used from any thread.</p>
+ */
+public class OpeningBook {
+
+    /** "C4BK" - first bytes of every book. */
+    static final int MAGIC        = 0x4334424B;
+    static final int VERSION      = 1;
+    static final int HEADER_BYTES = 16;
+    static final int ENTRY_BYTES  = 10;
+
+    /** What {@link #lookup(Board, Board.PLAYERS)} returns for positions not in the book. */
+    public static final int NOT_FOUND = -1;
+
+    private final ByteBuffer mBuffer;
+    private final int        mRows;
+    private final int        mColumns;
+    private final int        mDisksNeededForWin;
+    private final int        mPlies;
+    private final int        mDepth;
+    private final int        mEntries;
+
+
+    /**
+     * Read a book from a buffer holding exactly its bytes.
+     * @param buffer holding the book, from position {@code 0}. Never modified.
+     * @throws IllegalArgumentException if the buffer doesn't hold a book of this version.
+     */
+    public OpeningBook(ByteBuffer buffer) throws IllegalArgumentException {
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not an opening book");
+        }
+        if (buffer.get(4) != VERSION) {
+            throw new IllegalArgumentException("Opening book version " + buffer.get(4)
+                                               + " instead of " + VERSION);
+        }
+        mBuffer = buffer;
+        mRows = buffer.get(5);
+        mColumns = buffer.get(6);
+        mDisksNeededForWin = buffer.get(7);
+        mPlies = buffer.get(8);
+        mDepth = buffer.get(9);
+        mEntries = buffer.getInt(12);
+        if ((long) HEADER_BYTES + (long) mEntries * ENTRY_BYTES > buffer.capacity()) {
+            throw new IllegalArgumentException("Opening book cut short, " + mEntries
+                                               + " positions don't fit");
+        }
+    }
+
+    /**
+     * Map a book file into memory, read only.
+     * @param file the book, as written by {@link OpeningBookGenerator}.
+     * @return the book, backed by the mapped file.
+     * @throws IOException if the file can't be read.
+     * @throws IllegalArgumentException if the file is not a book of this version.
+     */
+    public static OpeningBook map(File file) throws IOException, IllegalArgumentException {
+        RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            return map(input.getChannel(), 0, input.length());
+        }
+        finally {
+            // The mapping stays valid after the file is closed.
+            input.close();
+        }
+    }
+
+    /**
+     * Map a book stored somewhere inside a file - like an uncompressed Android asset - into
+     * memory, read only.
+     * @param channel of the file holding the book. Can be closed once this returns.
+     * @param offset where the book starts in the file.
+     * @param length how many bytes the book takes.
+     * @return the book, backed by the mapped file.
+     * @throws IOException if the file can't be read.
+     * @throws IllegalArgumentException if the bytes are not a book of this version.
+     */
+    public static OpeningBook map(FileChannel channel, long offset, long length)
+            throws IOException, IllegalArgumentException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        return new OpeningBook(buffer);
+    }
+
+    /**
+     * @return {@code true} if the book was written for boards like {@code board}.
+     */
+    public boolean covers(Board board) {
+        return mRows == board.getNumberOfRows()
+               && mColumns == board.getNumberOfColumns()
+               && mDisksNeededForWin == board.getDisksNeededForWin();
+    }
+
+    /**
+     * Find the best move of a position.
+     * @param board the position. Boards of another geometry are never in the book.
+     * @param side who's to move in {@code board}.
+     * @return board index of the column where to store the disk, {@link #NOT_FOUND} if the
+     *         position is not in the book.
+     */
+    public int lookup(Board board, Board.PLAYERS side) {
+        if (board.getMovesNumber() >= mPlies || !covers(board)) {
+            return NOT_FOUND;
+        }
+        long key = board.getCanonicalHash() ^ Zobrist.sideToMoveKey(side);
+
+        int low = 0;
+        int high = mEntries - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int offset = HEADER_BYTES + middle * ENTRY_BYTES;
+            long middleKey = mBuffer.getLong(offset);
+            if (middleKey < key) {
+                low = middle + 1;
+            }
+            else if (middleKey > key) {
+                high = middle - 1;
+            }
+            else {
+                int column = mBuffer.get(offset + 8);
+                return board.isCanonicalMirrored() ? board.mirrorColumn(column) : column;
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * @return how many positions the book has.
+     */
+    public int getPositions() {
+        return mEntries;
+    }
+
+    /**
+     * @return moves of games shorter than this are in the book.
+     */
+    public int getPlies() {
+        return mPlies;
+    }
+
+    /**
+     * @return how many moves ahead the positions were searched.
+     */
+    public int getDepth() {
+        return mDepth;
+    }
+}
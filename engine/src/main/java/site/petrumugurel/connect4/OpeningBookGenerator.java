@@ -0,0 +1,262 @@
+package site.petrumugurel.connect4;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+
+/**
+ * Writes {@link OpeningBook}s - meant to be run offline, as it searches every position of the
+ * first plies much deeper than there would be time for during a game.
+ * <p>Positions are collected from the empty board with either side starting, every position
+ * and its left-right mirror only once, as the moves leading to them. They are then replayed and
+ * searched by a {@link NegamaxEngine} per thread.</p>
+ */
+public final class OpeningBookGenerator {
+
+    private OpeningBookGenerator() {
+        // only static helpers here
+    }
+
+
+    /**
+     * Search all positions of the first plies of a geometry and write their best moves as a
+     * book.
+     * @param rows how many rows the board has.
+     * @param columns how many columns the board has.
+     * @param disksNeededForWin how many disks in a line are needed to win.
+     * @param plies positions with fewer disks than this are searched.
+     * @param depth how many moves ahead to search every position, at most {@code 127}.
+     * @param millis time budget of every search, {@code 0} to be only limited by depth.
+     * @param threads on how many threads to search.
+     * @return the book's bytes, to be read by {@link OpeningBook}.
+     * @throws IllegalArgumentException for an invalid geometry, for less than 1 ply or for a
+     *                                  depth out of {@code [1, 127]}.
+     */
+    public static byte[] generate(final int rows, final int columns, final int disksNeededForWin,
+                                  int plies, final int depth, final long millis, int threads)
+            throws IllegalArgumentException {
+        if (plies < 1) {
+            throw new IllegalArgumentException("The book needs to cover at least one ply");
+        }
+        if (depth < 1 || depth > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Search depth must be in [1, "
+                                               + Byte.MAX_VALUE + "]");
+        }
+
+        Board board = new Board(rows, columns, disksNeededForWin);
+        final List<byte[]> positions = new ArrayList<byte[]>();
+        final List<Board.PLAYERS> sides = new ArrayList<Board.PLAYERS>();
+        Set<Long> keys = new HashSet<Long>();
+        byte[] moves = new byte[plies];
+        collect(board, Board.PLAYERS.PLAYER, plies, moves, keys, positions, sides);
+        collect(board, Board.PLAYERS.AI, plies, moves, keys, positions, sides);
+
+        // Every thread takes every threads-th position, searching with an engine of its own.
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final SortedMap<Long, Integer> bestMoves = new TreeMap<Long, Integer>();
+        try {
+            List<Future<Void>> stripes = new ArrayList<Future<Void>>();
+            for (int t = 0; t < threads; t++) {
+                final int first = t;
+                final int step = threads;
+                stripes.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        NegamaxEngine engine = new NegamaxEngine(depth, 0);
+                        engine.setTimeBudget(millis);
+                        Board position = new Board(rows, columns, disksNeededForWin);
+                        for (int i = first; i < positions.size(); i += step) {
+                            Board.PLAYERS side = sides.get(i);
+                            replay(position, positions.get(i), side);
+                            int column = engine.chooseColumn(position, side);
+                            if (position.isCanonicalMirrored()) {
+                                column = position.mirrorColumn(column);
+                            }
+                            long key = position.getCanonicalHash() ^ Zobrist.sideToMoveKey(side);
+                            synchronized (bestMoves) {
+                                bestMoves.put(key, column);
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> stripe : stripes) {
+                stripe.get();
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while generating", e);
+        }
+        catch (ExecutionException e) {
+            throw new RuntimeException("Generating failed", e.getCause());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        return write(rows, columns, disksNeededForWin, plies, depth, bestMoves);
+    }
+
+    /**
+     * Generate a book and write it to a file.
+     * <p>Arguments, all optional, as {@code --name value}:
+     * <br>&#09; {@code --rows}, {@code --columns}, {@code --win} - the geometry, 6 x 7 x 4
+     *           by default;
+     * <br>&#09; {@code --plies} - positions with fewer disks get in the book, 6 by default;
+     * <br>&#09; {@code --depth} - how deep to search every position, 14 by default;
+     * <br>&#09; {@code --millis} - time budget of every search, none by default;
+     * <br>&#09; {@code --threads} - all available cores by default;
+     * <br>&#09; {@code --output} - where to write the book,
+     *           {@code <rows>x<columns>x<win>.book} by default.</p>
+     */
+    public static void main(String[] args) throws IOException {
+        int rows = 6;
+        int columns = 7;
+        int disksNeededForWin = 4;
+        int plies = 6;
+        int depth = 14;
+        long millis = 0;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String output = null;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (args[i].equals("--output")) {
+                output = args[i + 1];
+                continue;
+            }
+            int value = Integer.parseInt(args[i + 1]);
+            if (args[i].equals("--rows")) {
+                rows = value;
+            }
+            else if (args[i].equals("--columns")) {
+                columns = value;
+            }
+            else if (args[i].equals("--win")) {
+                disksNeededForWin = value;
+            }
+            else if (args[i].equals("--plies")) {
+                plies = value;
+            }
+            else if (args[i].equals("--depth")) {
+                depth = value;
+            }
+            else if (args[i].equals("--millis")) {
+                millis = value;
+            }
+            else if (args[i].equals("--threads")) {
+                threads = value;
+            }
+            else {
+                throw new IllegalArgumentException("Unknown argument " + args[i]);
+            }
+        }
+        if (output == null) {
+            output = rows + "x" + columns + "x" + disksNeededForWin + ".book";
+        }
+
+        long start = System.nanoTime();
+        byte[] book = generate(rows, columns, disksNeededForWin, plies, depth, millis, threads);
+        FileOutputStream file = new FileOutputStream(output);
+        try {
+            file.write(book);
+        }
+        finally {
+            file.close();
+        }
+        System.out.printf(Locale.US, "%s: %,d positions of %d x %d, %d to win, in %.1f s%n",
+                          output, (book.length - OpeningBook.HEADER_BYTES)
+                                  / OpeningBook.ENTRY_BYTES,
+                          rows, columns, disksNeededForWin, (System.nanoTime() - start) / 1e9);
+    }
+
+
+    /**
+     * Collect the positions reachable from {@code board} which are not over and have fewer
+     * than {@code plies} disks, each one only once whatever the move order or the mirroring.
+     * @param moves the columns played so far, to be copied for every new position.
+     */
+    private static void collect(Board board, Board.PLAYERS side, int plies, byte[] moves,
+                                Set<Long> keys, List<byte[]> positions,
+                                List<Board.PLAYERS> sides) {
+        int movesNumber = board.getMovesNumber();
+        if (movesNumber >= plies || board.getWinner() != null || board.isDraw()
+            || !keys.add(board.getCanonicalHash() ^ Zobrist.sideToMoveKey(side))) {
+            return;
+        }
+        positions.add(Arrays.copyOf(moves, movesNumber));
+        sides.add(side);
+
+        Board.PLAYERS nextSide = NegamaxEngine.opponent(side);
+        for (int columns = board.getPlayableColumns(); columns != 0; columns &= columns - 1) {
+            int column = Integer.numberOfTrailingZeros(columns);
+            moves[movesNumber] = (byte) column;
+            board.storeNewDisk(side, column);
+            collect(board, nextSide, plies, moves, keys, positions, sides);
+            board.undoMove();
+        }
+    }
+
+    /**
+     * Set up a position on a board from the moves leading to it.
+     * @param board where to play the moves, cleared first.
+     * @param moves columns played, sides taking turns.
+     * @param side who's to move after the last of {@code moves}.
+     */
+    private static void replay(Board board, byte[] moves, Board.PLAYERS side) {
+        board.clearBoard();
+        Board.PLAYERS mover = moves.length % 2 == 0 ? side : NegamaxEngine.opponent(side);
+        for (byte column : moves) {
+            board.storeNewDisk(mover, column);
+            mover = NegamaxEngine.opponent(mover);
+        }
+    }
+
+    /**
+     * Lay out a book as {@link OpeningBook} reads it.
+     * @param moves best column of every position, by key - sorted as the book needs them.
+     */
+    static byte[] write(int rows, int columns, int disksNeededForWin, int plies, int depth,
+                        SortedMap<Long, Integer> moves) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(
+                OpeningBook.HEADER_BYTES + moves.size() * OpeningBook.ENTRY_BYTES);
+        DataOutputStream output = new DataOutputStream(bytes);
+        try {
+            output.writeInt(OpeningBook.MAGIC);
+            output.writeByte(OpeningBook.VERSION);
+            output.writeByte(rows);
+            output.writeByte(columns);
+            output.writeByte(disksNeededForWin);
+            output.writeByte(Math.min(plies, Byte.MAX_VALUE));
+            output.writeByte(depth);
+            output.writeShort(0);
+            output.writeInt(moves.size());
+            for (Map.Entry<Long, Integer> move : moves.entrySet()) {
+                output.writeLong(move.getKey());
+                output.writeByte(move.getValue());
+                output.writeByte(0);
+            }
+        }
+        catch (IOException e) {
+            throw new IllegalStateException("Writing to memory failed", e);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,149 @@
+package site.petrumugurel.connect4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+
+/**
+ * Counts the leaves of the move tree of a {@link Board} down to a given depth - "perft".
+ * <p>Every move is stored, checked for a winner and taken back, so the counts check that all
+ * of this works, while the time taken measures how fast it is. The counts only depend on the
+ * rules, so they stay the same whatever the way the board is kept.</p>
+ * <p>Positions where the game is over are leaves, however shallow.</p>
+ */
+public final class Perft {
+
+    private Perft() {
+        // only static helpers here
+    }
+
+
+    /**
+     * Count the leaves of the move tree, on the calling thread.
+     * @param board position from where to count. Moves are tried on it and taken back.
+     * @param sideToMove who's to move in {@code board}.
+     * @param depth how many moves deep to go.
+     * @return number of positions reached after {@code depth} moves or where the game ended.
+     */
+    public static long count(Board board, Board.PLAYERS sideToMove, int depth) {
+        if (depth == 0 || board.getWinner() != null || board.isDraw()) {
+            return 1;
+        }
+
+        Board.PLAYERS nextSide = NegamaxEngine.opponent(sideToMove);
+        long leaves = 0;
+        for (int columns = board.getPlayableColumns(); columns != 0; columns &= columns - 1) {
+            board.storeNewDisk(sideToMove, Integer.numberOfTrailingZeros(columns));
+            leaves += depth == 1 ? 1 : count(board, nextSide, depth - 1);
+            board.undoMove();
+        }
+        return leaves;
+    }
+
+    /**
+     * Count the leaves of the move tree, the subtree of every move from {@code board} being
+     * counted on another thread.
+     * @param board position from where to count. Left unchanged.
+     * @param sideToMove who's to move in {@code board}.
+     * @param depth how many moves deep to go.
+     * @param threads on how many threads to count.
+     * @return the same as {@link #count(Board, Board.PLAYERS, int)}.
+     */
+    public static long countParallel(Board board, final Board.PLAYERS sideToMove,
+                                     final int depth, int threads) {
+        if (depth == 0 || board.getWinner() != null || board.isDraw()) {
+            return 1;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Long>> subtrees = new ArrayList<Future<Long>>();
+            for (int columns = board.getPlayableColumns(); columns != 0;
+                 columns &= columns - 1) {
+                final Board subtreeBoard = new Board(board);
+                subtreeBoard.storeNewDisk(sideToMove, Integer.numberOfTrailingZeros(columns));
+                subtrees.add(executor.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() {
+                        return count(subtreeBoard, NegamaxEngine.opponent(sideToMove),
+                                     depth - 1);
+                    }
+                }));
+            }
+
+            long leaves = 0;
+            for (Future<Long> subtree : subtrees) {
+                leaves += subtree.get();
+            }
+            return leaves;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while counting", e);
+        }
+        catch (ExecutionException e) {
+            throw new RuntimeException("Counting failed", e.getCause());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Count the leaves of the move tree of an empty board for every depth up to the given one,
+     * printing the counts and the leaves counted per second.
+     * <p>Arguments, all optional, as {@code --name value}:
+     * <br>&#09; {@code --rows}, {@code --columns}, {@code --win} - the geometry, 6 x 7 x 4
+     *           by default;
+     * <br>&#09; {@code --depth} - 8 by default;
+     * <br>&#09; {@code --threads} - to count the subtree of every first move on another
+     *           thread, 1 by default.</p>
+     */
+    public static void main(String[] args) {
+        int rows = 6;
+        int columns = 7;
+        int disksNeededForWin = 4;
+        int maxDepth = 8;
+        int threads = 1;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            int value = Integer.parseInt(args[i + 1]);
+            if (args[i].equals("--rows")) {
+                rows = value;
+            }
+            else if (args[i].equals("--columns")) {
+                columns = value;
+            }
+            else if (args[i].equals("--win")) {
+                disksNeededForWin = value;
+            }
+            else if (args[i].equals("--depth")) {
+                maxDepth = value;
+            }
+            else if (args[i].equals("--threads")) {
+                threads = value;
+            }
+            else {
+                throw new IllegalArgumentException("Unknown argument " + args[i]);
+            }
+        }
+
+        Board board = new Board(rows, columns, disksNeededForWin);
+        System.out.printf(Locale.US, "perft on %d x %d, %d to win, %d threads%n",
+                          rows, columns, disksNeededForWin, threads);
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            long start = System.nanoTime();
+            long leaves = threads > 1 ? countParallel(board, Board.PLAYERS.PLAYER, depth, threads)
+                                      : count(board, Board.PLAYERS.PLAYER, depth);
+            long nanos = Math.max(System.nanoTime() - start, 1);
+            System.out.printf(Locale.US, "depth %2d: %,15d leaves in %8.1f ms, %,.0f leaves/s%n",
+                              depth, leaves, nanos / 1e6, leaves * 1e9 / nanos);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package site.petrumugurel.connect4;
+
+import java.util.Random;
+
+
+/**
+ * The simplest {@link AIEngine} possible - stores disks in random columns which still have
+ * free spaces.
+ * <br>Doesn't allocate anything while choosing moves.
+ */
+public class RandomAIEngine implements AIEngine {
+
+    private final Random mRandom;
+
+    public RandomAIEngine() {
+        mRandom = new Random();
+    }
+
+    /**
+     * @param seed for the random generator, for the same moves on every run.
+     */
+    public RandomAIEngine(long seed) {
+        mRandom = new Random(seed);
+    }
+
+    @Override
+    public int chooseColumn(Board board, Board.PLAYERS side) {
+        int playableColumns = board.getPlayableColumns();
+        // Skip a random number of the playable columns, lowest first.
+        for (int skipped = mRandom.nextInt(Integer.bitCount(playableColumns)); skipped > 0;
+             skipped--) {
+            playableColumns &= playableColumns - 1;
+        }
+        return Integer.numberOfTrailingZeros(playableColumns);
+    }
+
+    @Override
+    public void setTimeBudget(long millis) {
+        // picking a random column takes no time
+    }
+}
@@ -0,0 +1,195 @@
+package site.petrumugurel.connect4;
+
+import java.util.Locale;
+
+
+/**
+ * What one search of a {@link NegamaxEngine} or a {@link LazySmpEngine} did - how many
+ * positions it visited, how deep it got, how well the {@link TranspositionTable} and the move
+ * ordering worked and how long it took.
+ * <p>Searches only count into plain fields of their own, one set per searching thread, which
+ * are gathered into a {@link SearchMetrics} once the search is over. So counting costs a few
+ * increments per position, without any sharing between threads, and can be left on.</p>
+ */
+public final class SearchMetrics {
+
+    /**
+     * Callback for the metrics of every finished search.
+     */
+    public interface Listener {
+        /**
+         * Called on the searching thread, right before the chosen move is returned.
+         * <br>Should return quickly, the move waits for it.
+         * @param metrics of the search which just finished.
+         */
+        void onSearchFinished(SearchMetrics metrics);
+    }
+
+    private final long mNodes;
+    private final long mNanos;
+    private final int  mDepth;
+    private final int  mThreads;
+    private final long mTableProbes;
+    private final long mTableHits;
+    private final long mTableCollisions;
+    /** Positions where moves were tried, as opposed to those scored without searching. */
+    private final long mSearchedPositions;
+    private final long mCutoffs;
+    private final long mFirstMoveCutoffs;
+    /** Positions visited by the iteration which completed {@link #mDepth}. */
+    private final long mLastIterationNodes;
+
+
+    SearchMetrics(long nodes, long nanos, int depth, int threads,
+                  long tableProbes, long tableHits, long tableCollisions,
+                  long searchedPositions, long cutoffs, long firstMoveCutoffs,
+                  long lastIterationNodes) {
+        mNodes = nodes;
+        mNanos = nanos;
+        mDepth = depth;
+        mThreads = threads;
+        mTableProbes = tableProbes;
+        mTableHits = tableHits;
+        mTableCollisions = tableCollisions;
+        mSearchedPositions = searchedPositions;
+        mCutoffs = cutoffs;
+        mFirstMoveCutoffs = firstMoveCutoffs;
+        mLastIterationNodes = lastIterationNodes;
+    }
+
+    /**
+     * Gather the metrics of searches of the same position running at the same time on
+     * different threads.
+     * @param main metrics of the search whose move is played - giving the depth, the time and
+     *             the branching factor.
+     * @param helpers metrics of the other searches, only adding to the counts.
+     * @return the counts of all searches together.
+     */
+    static SearchMetrics combine(SearchMetrics main, SearchMetrics... helpers) {
+        long nodes = main.mNodes;
+        long tableProbes = main.mTableProbes;
+        long tableHits = main.mTableHits;
+        long tableCollisions = main.mTableCollisions;
+        long searchedPositions = main.mSearchedPositions;
+        long cutoffs = main.mCutoffs;
+        long firstMoveCutoffs = main.mFirstMoveCutoffs;
+        for (SearchMetrics helper : helpers) {
+            nodes += helper.mNodes;
+            tableProbes += helper.mTableProbes;
+            tableHits += helper.mTableHits;
+            tableCollisions += helper.mTableCollisions;
+            searchedPositions += helper.mSearchedPositions;
+            cutoffs += helper.mCutoffs;
+            firstMoveCutoffs += helper.mFirstMoveCutoffs;
+        }
+        return new SearchMetrics(nodes, main.mNanos, main.mDepth, 1 + helpers.length,
+                                 tableProbes, tableHits, tableCollisions,
+                                 searchedPositions, cutoffs, firstMoveCutoffs,
+                                 main.mLastIterationNodes);
+    }
+
+    /**
+     * @return how many positions were visited, by all threads.
+     */
+    public long getNodes() {
+        return mNodes;
+    }
+
+    /**
+     * @return positions visited per second of search, by all threads.
+     */
+    public double getNodesPerSecond() {
+        return mNodes * 1e9 / Math.max(mNanos, 1);
+    }
+
+    /**
+     * @return the deepest search completed - on the main thread if there were more.
+     */
+    public int getDepth() {
+        return mDepth;
+    }
+
+    /**
+     * @return how many threads searched.
+     */
+    public int getThreads() {
+        return mThreads;
+    }
+
+    /**
+     * @return how long the search took, in nanoseconds.
+     */
+    public long getTimeNanos() {
+        return mNanos;
+    }
+
+    /**
+     * @return how long the search took, in milliseconds.
+     */
+    public double getTimeMillis() {
+        return mNanos / 1e6;
+    }
+
+    /**
+     * @return how many times the {@link TranspositionTable} was looked into.
+     */
+    public long getTableProbes() {
+        return mTableProbes;
+    }
+
+    /**
+     * @return share of the table probes which found a result for the position,
+     *         {@code 0} if there were none.
+     */
+    public double getTableHitRate() {
+        return mTableProbes == 0 ? 0 : (double) mTableHits / mTableProbes;
+    }
+
+    /**
+     * @return share of the table probes which found no result for the position while its
+     *         bucket was holding results of other positions - which it might have evicted.
+     *         {@code 0} if there were no probes.
+     */
+    public double getTableCollisionRate() {
+        return mTableProbes == 0 ? 0 : (double) mTableCollisions / mTableProbes;
+    }
+
+    /**
+     * @return share of the positions where moves were tried which were cut off early because
+     *         a move was already too good - a "beta cutoff". {@code 0} if no moves were tried.
+     */
+    public double getCutoffRate() {
+        return mSearchedPositions == 0 ? 0 : (double) mCutoffs / mSearchedPositions;
+    }
+
+    /**
+     * @return share of the cutoffs caused by the first move tried, {@code 0} if none.
+     */
+    public double getFirstMoveCutoffRate() {
+        return mCutoffs == 0 ? 0 : (double) mFirstMoveCutoffs / mCutoffs;
+    }
+
+    /**
+     * @return how many moves would need to be tried in every position of a uniform tree as
+     *         deep as the last completed iteration to visit as many positions -
+     *         {@code nodes ^ (1 / depth)}. {@code 0} if no depth was completed.
+     */
+    public double getEffectiveBranchingFactor() {
+        return mDepth == 0 ? 0 : Math.pow(mLastIterationNodes, 1.0 / mDepth);
+    }
+
+    /**
+     * @return all the metrics on one line, for logging.
+     */
+    @Override
+    public String toString() {
+        return String.format(Locale.US,
+                             "depth %d, %,d nodes in %.1f ms (%,.0f nodes/s, %d threads), "
+                             + "table hits %.1f%% collisions %.1f%%, cutoffs %.1f%% "
+                             + "(%.1f%% first move), branching factor %.2f",
+                             mDepth, mNodes, getTimeMillis(), getNodesPerSecond(), mThreads,
+                             100 * getTableHitRate(), 100 * getTableCollisionRate(),
+                             100 * getCutoffRate(), 100 * getFirstMoveCutoffRate(),
+                             getEffectiveBranchingFactor());
+    }
+}
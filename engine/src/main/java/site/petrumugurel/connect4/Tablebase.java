@@ -0,0 +1,272 @@
+package site.petrumugurel.connect4;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+
+/**
+ * Exact result - win, draw or loss - of every position of games of one small geometry, solved
+ * once and offline by {@link TablebaseGenerator}.
+ * <p>Every position has a rank, which is its index in the table. The disks of a column are one
+ * digit of the rank:</p>
+ * <pre>
+ *      column code = 2<sup>height</sup> - 1 + disks of the second side, as bits from the bottom
+ *      rank        = sum of column code * {@link #radix(int) radix}<sup>column</sup>
+ * </pre>
+ * <p>where the second side is the one who didn't make the first move of the game - so the same
+ * disks get the same rank whoever started. Ranks are a perfect hash, every position of
+ * {@code rows x columns} having its own one in {@code [0, radix}<sup>columns</sup>{@code )}, and
+ * storing a disk in a column always gives a higher rank.</p>
+ * <p>Tablebases are binary files made of a header and 2 bits for every rank, four ranks a
+ * byte, the lowest rank in the lowest bits:</p>
+ * <pre>
+ *      header, {@link #HEADER_BYTES} bytes:
+ *          int   {@link #MAGIC}
+ *          byte  {@link #VERSION}
+ *          byte  rows, columns, disks needed for win
+ *          int   number of ranks
+ *          int   reserved
+ *      every rank, 2 bits:
+ *          0 - not a position of a game still going on
+ *          1 - {@link EndgameSolver#LOSS}, 2 - {@link EndgameSolver#DRAW},
+ *          3 - {@link EndgameSolver#WIN}, for the side to move
+ * </pre>
+ * <p>As for {@link OpeningBook}s, the table is read in place through a {@link ByteBuffer} -
+ * normally a {@link MappedByteBuffer}, so only the pages actually looked up are ever loaded -
+ * and can be used from any thread.</p>
+ */
+public class Tablebase {
+
+    /** "C4TB" - first bytes of every tablebase. */
+    static final int MAGIC        = 0x43345442;
+    static final int VERSION      = 1;
+    static final int HEADER_BYTES = 16;
+
+    /** What {@link #bestColumn(Board, Board.PLAYERS)} returns for positions not in the table. */
+    public static final int NOT_FOUND = -1;
+
+    /** What {@link #read(int)} returns for ranks which are not positions of a game going on. */
+    private static final int NO_RESULT = Integer.MIN_VALUE;
+
+    private final ByteBuffer mBuffer;
+    private final int        mRows;
+    private final int        mColumns;
+    private final int        mDisksNeededForWin;
+    private final int        mRanks;
+    /** {@link #radix(int)}<sup>column</sup> of every column. */
+    private final int[]      mColumnWeights;
+    /** Columns in the order {@link #bestColumn(Board, Board.PLAYERS)} tries them. */
+    private final int[]      mCenterOrder;
+
+
+    /**
+     * Read a tablebase from a buffer holding exactly its bytes.
+     * @param buffer holding the tablebase, from position {@code 0}. Never modified.
+     * @throws IllegalArgumentException if the buffer doesn't hold a tablebase of this version.
+     */
+    public Tablebase(ByteBuffer buffer) throws IllegalArgumentException {
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a tablebase");
+        }
+        if (buffer.get(4) != VERSION) {
+            throw new IllegalArgumentException("Tablebase version " + buffer.get(4)
+                                               + " instead of " + VERSION);
+        }
+        mBuffer = buffer;
+        mRows = buffer.get(5);
+        mColumns = buffer.get(6);
+        mDisksNeededForWin = buffer.get(7);
+        mRanks = buffer.getInt(8);
+        if (mRows < 1 || mColumns < 1 || ranks(mRows, mColumns) != mRanks) {
+            throw new IllegalArgumentException("Tablebase of " + mRanks + " positions for "
+                                               + mRows + " x " + mColumns);
+        }
+        if (HEADER_BYTES + tableBytes(mRanks) > buffer.capacity()) {
+            throw new IllegalArgumentException("Tablebase cut short, " + mRanks
+                                               + " positions don't fit");
+        }
+        mColumnWeights = columnWeights(mRows, mColumns);
+        mCenterOrder = MoveOrderer.centerFirstOrder(mColumns);
+    }
+
+    /**
+     * Map a tablebase file into memory, read only.
+     * @param file the tablebase, as written by {@link TablebaseGenerator}.
+     * @return the tablebase, backed by the mapped file.
+     * @throws IOException if the file can't be read.
+     * @throws IllegalArgumentException if the file is not a tablebase of this version.
+     */
+    public static Tablebase map(File file) throws IOException, IllegalArgumentException {
+        RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            return map(input.getChannel(), 0, input.length());
+        }
+        finally {
+            // The mapping stays valid after the file is closed.
+            input.close();
+        }
+    }
+
+    /**
+     * Map a tablebase stored somewhere inside a file - like an uncompressed Android asset - into
+     * memory, read only.
+     * @param channel of the file holding the tablebase. Can be closed once this returns.
+     * @param offset where the tablebase starts in the file.
+     * @param length how many bytes the tablebase takes.
+     * @return the tablebase, backed by the mapped file.
+     * @throws IOException if the file can't be read.
+     * @throws IllegalArgumentException if the bytes are not a tablebase of this version.
+     */
+    public static Tablebase map(FileChannel channel, long offset, long length)
+            throws IOException, IllegalArgumentException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        return new Tablebase(buffer);
+    }
+
+    /**
+     * @return {@code true} if the tablebase was solved for boards like {@code board}.
+     */
+    public boolean covers(Board board) {
+        return mRows == board.getNumberOfRows()
+               && mColumns == board.getNumberOfColumns()
+               && mDisksNeededForWin == board.getDisksNeededForWin();
+    }
+
+    /**
+     * Find the result of a position.
+     * @param board the position. Boards of another geometry are never in the table.
+     * @param side who's to move in {@code board}.
+     * @return {@link EndgameSolver#WIN} / {@link EndgameSolver#DRAW} / {@link EndgameSolver#LOSS}
+     *         for {@code side} with both sides playing perfectly, {@link EndgameSolver#UNKNOWN}
+     *         if the position is not in the table - like games already over.
+     */
+    public int lookup(Board board, Board.PLAYERS side) {
+        if (!covers(board)) {
+            return EndgameSolver.UNKNOWN;
+        }
+        int result = read(rank(board, side));
+        return result == NO_RESULT ? EndgameSolver.UNKNOWN : result;
+    }
+
+    /**
+     * Find the best move of a position - a winning one if there's any, else a drawing one.
+     * <br>Only looks up the positions after every move, never searching.
+     * @param board the position. Boards of another geometry are never in the table.
+     * @param side who's to move in {@code board}.
+     * @return board index of the column where to store the disk, {@link #NOT_FOUND} if the
+     *         position is not in the table.
+     */
+    public int bestColumn(Board board, Board.PLAYERS side) {
+        if (!covers(board) || board.getWinner() != null || board.getPlayableColumns() == 0) {
+            return NOT_FOUND;
+        }
+        int rank = rank(board, side);
+        // The side to move is the second one if the disks on the board are odd.
+        int secondToMove = board.getMovesNumber() & 1;
+
+        int bestColumn = NOT_FOUND;
+        int bestResult = EndgameSolver.LOSS - 1;
+        // Center first, so that out of equal moves the most useful one is played.
+        for (int column : mCenterOrder) {
+            int height = board.getColumnHeight(column);
+            if (height == mRows) {
+                continue;
+            }
+            if (board.isWinningMove(side, column)) {
+                return column;
+            }
+            int child = read(rank + (1 + secondToMove) * (1 << height) * mColumnWeights[column]);
+            // A full board after a move which didn't win is a draw.
+            int result = child == NO_RESULT ? EndgameSolver.DRAW : -child;
+            if (result > bestResult) {
+                bestResult = result;
+                bestColumn = column;
+            }
+        }
+        return bestColumn;
+    }
+
+    /**
+     * @return how many ranks - positions, including those no game can get to - the table has.
+     */
+    public int getPositions() {
+        return mRanks;
+    }
+
+    /**
+     * Rank the position of a board.
+     * @param side who's to move in {@code board}, telling who started the game.
+     */
+    private int rank(Board board, Board.PLAYERS side) {
+        Board.PLAYERS first = (board.getMovesNumber() & 1) == 0 ? side
+                                                               : NegamaxEngine.opponent(side);
+        int secondDisk = first == Board.PLAYERS.PLAYER ? Board.AI_DISK : Board.PLAYER_DISK;
+        int rank = 0;
+        for (int column = 0; column < mColumns; column++) {
+            int height = board.getColumnHeight(column);
+            int code = (1 << height) - 1;
+            for (int h = 0; h < height; h++) {
+                if (board.getDiskAt(mRows - 1 - h, column) == secondDisk) {
+                    code += 1 << h;
+                }
+            }
+            rank += code * mColumnWeights[column];
+        }
+        return rank;
+    }
+
+    /**
+     * @return result of the position of a rank, {@link #NO_RESULT} if not a position.
+     */
+    private int read(int rank) {
+        int bits = (mBuffer.get(HEADER_BYTES + (rank >>> 2)) >>> ((rank & 3) << 1)) & 3;
+        return bits == 0 ? NO_RESULT : bits - 2;
+    }
+
+
+    /**
+     * @return how many codes a column of {@code rows} can have -
+     *         2<sup>0</sup> + 2<sup>1</sup> + ... + 2<sup>rows</sup>.
+     */
+    static int radix(int rows) {
+        return (1 << (rows + 1)) - 1;
+    }
+
+    /**
+     * @return how many ranks a geometry has, {@code -1} if more than {@link Integer#MAX_VALUE}.
+     */
+    static int ranks(int rows, int columns) {
+        long ranks = 1;
+        for (int column = 0; column < columns; column++) {
+            ranks *= radix(rows);
+            if (ranks > Integer.MAX_VALUE) {
+                return -1;
+            }
+        }
+        return (int) ranks;
+    }
+
+    /**
+     * @return {@link #radix(int)}<sup>column</sup> of every column.
+     */
+    static int[] columnWeights(int rows, int columns) {
+        int[] weights = new int[columns];
+        int weight = 1;
+        for (int column = 0; column < columns; column++) {
+            weights[column] = weight;
+            weight *= radix(rows);
+        }
+        return weights;
+    }
+
+    /**
+     * @return how many bytes the 2 bits of {@code ranks} ranks take.
+     */
+    static long tableBytes(int ranks) {
+        return ((long) ranks + 3) / 4;
+    }
+}
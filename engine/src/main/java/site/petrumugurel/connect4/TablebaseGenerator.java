@@ -0,0 +1,197 @@
+package site.petrumugurel.connect4;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Locale;
+
+
+/**
+ * Writes {@link Tablebase}s - meant to be run offline, as it solves every position of a
+ * geometry.
+ * <p>Solving is retrograde: as storing a disk always gives a position of higher rank, going
+ * through the ranks from the highest one - full boards - down to {@code 0} - the empty board -
+ * finds the results of all positions after a move before the position itself needs them. Every
+ * position then only looks up the results of its moves, in the table being written.</p>
+ * <p>Ranks grow as {@code (2}<sup>rows + 1</sup>{@code - 1)}<sup>columns</sup> so only the
+ * smallest boards can be solved: {@code 4 x 4} has about {@code 920} thousand ranks, taking
+ * {@code 225 KB}, while {@code 5 x 5} already has about a billion, taking {@code 237 MB}. Boards
+ * with more than {@link Integer#MAX_VALUE} ranks, like {@code 5 x 6}, are rejected.</p>
+ */
+public final class TablebaseGenerator {
+
+    private TablebaseGenerator() {
+        // only static helpers here
+    }
+
+
+    /**
+     * Solve every position of a geometry.
+     * @param rows how many rows the board has.
+     * @param columns how many columns the board has.
+     * @param disksNeededForWin how many disks in a line are needed to win.
+     * @return the tablebase's bytes, to be read by {@link Tablebase}.
+     * @throws IllegalArgumentException for an invalid geometry or one with too many ranks.
+     */
+    public static byte[] generate(int rows, int columns, int disksNeededForWin)
+            throws IllegalArgumentException {
+        // Only checks the size - lines as long as the board is wide or high are playable too.
+        Board board = new Board(rows, columns, Board.getMinDisksToWin());
+        if (disksNeededForWin < Board.getMinDisksToWin()
+            || disksNeededForWin > board.getMaxDisksToWin()) {
+            throw new IllegalArgumentException("Between " + Board.getMinDisksToWin() + " and "
+                                               + board.getMaxDisksToWin()
+                                               + " disks can be needed to win");
+        }
+        int ranks = Tablebase.ranks(rows, columns);
+        if (ranks < 0) {
+            throw new IllegalArgumentException(rows + " x " + columns
+                                               + " has too many positions for a tablebase");
+        }
+
+        byte[] table = new byte[(int) (Tablebase.HEADER_BYTES + Tablebase.tableBytes(ranks))];
+        ByteBuffer header = ByteBuffer.wrap(table);
+        header.putInt(Tablebase.MAGIC);
+        header.put((byte) Tablebase.VERSION);
+        header.put((byte) rows);
+        header.put((byte) columns);
+        header.put((byte) disksNeededForWin);
+        header.putInt(ranks);
+
+        // Height and disks of the second side of every column code.
+        int radix = Tablebase.radix(rows);
+        int[] heights = new int[radix];
+        long[] secondDisks = new long[radix];
+        for (int code = 0; code < radix; code++) {
+            heights[code] = 31 - Integer.numberOfLeadingZeros(code + 1);
+            secondDisks[code] = code + 1 - (1 << heights[code]);
+        }
+        int[] weights = Tablebase.columnWeights(rows, columns);
+        WinningLines lines = WinningLines.forGeometry(rows, columns, disksNeededForWin);
+        // Few enough ranks for all bits to be in the low word of the bitboards.
+        int columnBits = rows + 1;
+
+        int[] codes = new int[columns];
+        Arrays.fill(codes, radix - 1);
+        for (int rank = ranks - 1; rank >= 0; rank--) {
+            long first = 0;
+            long second = 0;
+            for (int column = 0; column < columns; column++) {
+                int code = codes[column];
+                int shift = column * columnBits;
+                second |= secondDisks[code] << shift;
+                first |= (((1L << heights[code]) - 1) & ~secondDisks[code]) << shift;
+            }
+            // 0 if the first side is to move, 1 if the second one is.
+            int secondToMove = Long.bitCount(first) - Long.bitCount(second);
+            if ((secondToMove == 0 || secondToMove == 1)
+                && !lines.isAnyLineComplete(first, 0) && !lines.isAnyLineComplete(second, 0)) {
+                int result = solve(table, rank, secondToMove == 0 ? first : second,
+                                   secondToMove, codes, heights, weights, rows, lines);
+                table[Tablebase.HEADER_BYTES + (rank >>> 2)] |= (result + 2) << ((rank & 3) << 1);
+            }
+
+            // Codes of the next lower rank.
+            int column = 0;
+            while (column < columns && codes[column] == 0) {
+                codes[column++] = radix - 1;
+            }
+            if (column < columns) {
+                codes[column]--;
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Solve every geometry of a board size and write the tablebases to files.
+     * <p>Arguments, all optional, as {@code --name value}:
+     * <br>&#09; {@code --rows}, {@code --columns} - the board, 4 x 4 by default;
+     * <br>&#09; {@code --win} - disks needed to win, all there can be by default;
+     * <br>&#09; {@code --output} - directory where to write the tablebases, as
+     *           {@code <rows>x<columns>x<win>.tb}, the current one by default.</p>
+     */
+    public static void main(String[] args) throws IOException {
+        int rows = 4;
+        int columns = 4;
+        int disksNeededForWin = 0;
+        String output = ".";
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (args[i].equals("--output")) {
+                output = args[i + 1];
+                continue;
+            }
+            int value = Integer.parseInt(args[i + 1]);
+            if (args[i].equals("--rows")) {
+                rows = value;
+            }
+            else if (args[i].equals("--columns")) {
+                columns = value;
+            }
+            else if (args[i].equals("--win")) {
+                disksNeededForWin = value;
+            }
+            else {
+                throw new IllegalArgumentException("Unknown argument " + args[i]);
+            }
+        }
+
+        // Every line length a game of this size can be switched to.
+        int minDisks = disksNeededForWin == 0 ? Board.getMinDisksToWin() : disksNeededForWin;
+        int maxDisks = disksNeededForWin == 0
+                       ? new Board(rows, columns, Board.getMinDisksToWin()).getMaxDisksToWin()
+                       : disksNeededForWin;
+        for (int disks = minDisks; disks <= maxDisks; disks++) {
+            long start = System.nanoTime();
+            byte[] table = generate(rows, columns, disks);
+            File file = new File(output, rows + "x" + columns + "x" + disks + ".tb");
+            FileOutputStream stream = new FileOutputStream(file);
+            try {
+                stream.write(table);
+            }
+            finally {
+                stream.close();
+            }
+            System.out.printf(Locale.US, "%s: %,d positions of %d x %d, %d to win, in %.1f s%n",
+                              file, Tablebase.ranks(rows, columns), rows, columns, disks,
+                              (System.nanoTime() - start) / 1e9);
+        }
+    }
+
+
+    /**
+     * Find the result of a position from the results of the positions after its moves, already
+     * in the table.
+     * @param own disks of the side to move.
+     * @param secondToMove {@code 1} if the side to move is the second one, else {@code 0}.
+     * @return {@link EndgameSolver#WIN} / {@link EndgameSolver#DRAW} / {@link EndgameSolver#LOSS}
+     *         for the side to move.
+     */
+    private static int solve(byte[] table, int rank, long own, int secondToMove, int[] codes,
+                             int[] heights, int[] weights, int rows, WinningLines lines) {
+        int best = EndgameSolver.LOSS;
+        boolean canMove = false;
+        for (int column = 0; column < codes.length; column++) {
+            int height = heights[codes[column]];
+            if (height == rows) {
+                continue;
+            }
+            canMove = true;
+            int bitIndex = column * (rows + 1) + height;
+            long moved = own | (1L << bitIndex);
+            for (int line : lines.linesThrough(bitIndex)) {
+                if (lines.isComplete(line, moved, 0)) {
+                    return EndgameSolver.WIN;
+                }
+            }
+            // The disk makes the height-th bit of the code 1 if it's of the second side.
+            int child = rank + (1 + secondToMove) * (1 << height) * weights[column];
+            int bits = (table[Tablebase.HEADER_BYTES + (child >>> 2)] >>> ((child & 3) << 1)) & 3;
+            best = Math.max(best, 2 - bits);
+        }
+        return canMove ? best : EndgameSolver.DRAW;
+    }
+}
@@ -0,0 +1,422 @@
+package site.petrumugurel.connect4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Plays many games between two {@link AIEngine}s, with no UI, on all cores at once.
+ * <p>The engines take turns at starting games, and every game can start with a few random
+ * moves so that two engines which always make the same moves still play different games.
+ * All randomness comes from a seed, each game getting its own one, so the same seed always
+ * gives the same games - as long as the engines don't search against a time budget - however
+ * the games get spread between threads.</p>
+ * <p>Can be run from the command line, see {@link #main(String[])}.</p>
+ */
+public class Tournament {
+
+    /**
+     * Creates the engines for every game, so that no engine is ever used by two threads
+     * and no game depends on what an engine learned in another.
+     */
+    public interface EngineFactory {
+        /**
+         * @param seed for any randomness the engine needs, different for every game.
+         * @return a new engine.
+         */
+        AIEngine create(long seed);
+    }
+
+    /**
+     * Outcome of all games, from the first engine's point of view for the rates.
+     */
+    public static class Results {
+        private final int      mGames;
+        private final int[]    mWins = new int[2];
+        private       int      mDraws;
+        private final long     mElapsedNanos;
+        /** Time taken by every move of each engine, sorted. */
+        private final long[][] mMoveNanos = new long[2][];
+
+        private Results(int games, long elapsedNanos) {
+            mGames = games;
+            mElapsedNanos = elapsedNanos;
+        }
+
+        public int getGames() {
+            return mGames;
+        }
+
+        /**
+         * @param engine {@code 0} for the first engine, {@code 1} for the second.
+         * @return how many games {@code engine} won.
+         */
+        public int getWins(int engine) {
+            return mWins[engine];
+        }
+
+        public int getDraws() {
+            return mDraws;
+        }
+
+        /**
+         * @return share of the games won by the first engine, in the {@code [0, 1]} range.
+         */
+        public double getWinRate() {
+            return (double) mWins[0] / mGames;
+        }
+
+        public double getDrawRate() {
+            return (double) mDraws / mGames;
+        }
+
+        /**
+         * @return share of the games lost by the first engine, in the {@code [0, 1]} range.
+         */
+        public double getLossRate() {
+            return (double) mWins[1] / mGames;
+        }
+
+        public double getGamesPerSecond() {
+            return mGames * 1e9 / Math.max(mElapsedNanos, 1);
+        }
+
+        /**
+         * @param engine {@code 0} for the first engine, {@code 1} for the second.
+         * @param percentile in the {@code [0, 100]} range.
+         * @return time, in nanoseconds, in which {@code engine} made {@code percentile} percent
+         *         of its moves. {@code 0} if it made no moves.
+         */
+        public long getMoveLatency(int engine, double percentile) {
+            long[] nanos = mMoveNanos[engine];
+            if (nanos.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100 * nanos.length) - 1;
+            return nanos[Math.min(Math.max(index, 0), nanos.length - 1)];
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder report = new StringBuilder();
+            report.append(String.format(Locale.US,
+                    "%d games: %.1f%% wins, %.1f%% draws, %.1f%% losses, %.1f games/s%n",
+                    mGames, 100 * getWinRate(), 100 * getDrawRate(), 100 * getLossRate(),
+                    getGamesPerSecond()));
+            for (int engine = 0; engine < 2; engine++) {
+                report.append(String.format(Locale.US,
+                        "engine %d move latency: p50 %.3f ms, p90 %.3f ms, p99 %.3f ms, "
+                        + "max %.3f ms%n", engine + 1,
+                        getMoveLatency(engine, 50) / 1e6, getMoveLatency(engine, 90) / 1e6,
+                        getMoveLatency(engine, 99) / 1e6, getMoveLatency(engine, 100) / 1e6));
+            }
+            return report.toString();
+        }
+    }
+
+    /** Random moves every game starts with, unless changed. */
+    public static final int DEFAULT_OPENING_MOVES = 2;
+
+    /**
+     * Entries of the tables of the engines created by {@link #engineFactory(String)}. Every
+     * game gets new engines, so they're smaller than the default not to spend the time
+     * allocating them.
+     */
+    private static final int TOURNAMENT_TABLE_ENTRIES = 1 << 16;
+    /** Most positions of the trees of the {@link MctsEngine}s, for the same reason. */
+    private static final int TOURNAMENT_TREE_NODES    = 1 << 17;
+
+    private final int           mRows;
+    private final int           mColumns;
+    private final int           mDisksNeededForWin;
+    private final EngineFactory mFirst;
+    private final EngineFactory mSecond;
+    private int                 mOpeningMoves = DEFAULT_OPENING_MOVES;
+    private int                 mThreads      = Runtime.getRuntime().availableProcessors();
+    private long                mSeed;
+
+
+    /**
+     * @param rows how many rows the board has.
+     * @param columns how many columns the board has.
+     * @param disksNeededForWin how many disks in a line are needed to win.
+     * @param first creates the first engine of every game.
+     * @param second creates the second engine of every game.
+     * @throws IllegalArgumentException for a geometry not accepted by {@link Board}.
+     */
+    public Tournament(int rows, int columns, int disksNeededForWin,
+                      EngineFactory first, EngineFactory second)
+            throws IllegalArgumentException {
+        new Board(rows, columns, disksNeededForWin);    // only to validate the geometry
+        mRows = rows;
+        mColumns = columns;
+        mDisksNeededForWin = disksNeededForWin;
+        mFirst = first;
+        mSecond = second;
+    }
+
+    /**
+     * @param moves how many random moves every game starts with.
+     */
+    public void setOpeningMoves(int moves) {
+        mOpeningMoves = moves;
+    }
+
+    /**
+     * @param threads on how many threads to play games at the same time.
+     * @throws IllegalArgumentException for less than 1 thread.
+     */
+    public void setThreads(int threads) throws IllegalArgumentException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Need at least one thread to play on");
+        }
+        mThreads = threads;
+    }
+
+    /**
+     * @param seed from which the seeds of all games are derived.
+     */
+    public void setSeed(long seed) {
+        mSeed = seed;
+    }
+
+    /**
+     * Play the games, returning only once all are over.
+     * @param games how many games to play.
+     * @return what happened.
+     */
+    public Results play(final int games) {
+        final byte[] outcomes = new byte[games];
+        final AtomicInteger nextGame = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(mThreads);
+        List<Future<long[][]>> workers = new ArrayList<Future<long[][]>>();
+
+        long start = System.nanoTime();
+        try {
+            for (int t = 0; t < mThreads; t++) {
+                workers.add(executor.submit(new Callable<long[][]>() {
+                    @Override
+                    public long[][] call() {
+                        return playGames(games, nextGame, outcomes);
+                    }
+                }));
+            }
+
+            long[][] moveNanos = new long[2][0];
+            for (Future<long[][]> worker : workers) {
+                long[][] workerNanos = worker.get();
+                for (int engine = 0; engine < 2; engine++) {
+                    moveNanos[engine] = concat(moveNanos[engine], workerNanos[engine]);
+                }
+            }
+
+            Results results = new Results(games, System.nanoTime() - start);
+            for (byte outcome : outcomes) {
+                if (outcome < 0) {
+                    results.mDraws++;
+                }
+                else {
+                    results.mWins[outcome]++;
+                }
+            }
+            for (int engine = 0; engine < 2; engine++) {
+                Arrays.sort(moveNanos[engine]);
+                results.mMoveNanos[engine] = moveNanos[engine];
+            }
+            return results;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while playing", e);
+        }
+        catch (ExecutionException e) {
+            throw new RuntimeException("A game failed", e.getCause());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Keep playing the next game not yet taken by another thread until all are played.
+     * @param outcomes where to store the engine which won every game, {@code -1} for draws.
+     * @return time taken by every move of each engine.
+     */
+    private long[][] playGames(int games, AtomicInteger nextGame, byte[] outcomes) {
+        Board board = new Board(mRows, mColumns, mDisksNeededForWin);
+        Board.PLAYERS[] sides = {Board.PLAYERS.PLAYER, Board.PLAYERS.AI};
+        int[] moves = new int[mColumns];
+        long[][] moveNanos = new long[2][64];
+        int[] movesMade = new int[2];
+
+        for (int game = nextGame.getAndIncrement(); game < games;
+             game = nextGame.getAndIncrement()) {
+            long gameSeed = mSeed + game * 0x9E3779B97F4A7C15L;
+            Random random = new Random(gameSeed);
+            AIEngine[] engines = {mFirst.create(gameSeed + 1), mSecond.create(gameSeed + 2)};
+
+            board.clearBoard();
+            int mover = game % 2;   // the engines take turns at starting
+            while (board.getWinner() == null && !board.isDraw()) {
+                int column;
+                if (board.getMovesNumber() < mOpeningMoves) {
+                    column = moves[random.nextInt(board.getLegalMoves(moves))];
+                }
+                else {
+                    long moveStart = System.nanoTime();
+                    column = engines[mover].chooseColumn(board, sides[mover]);
+                    long nanos = System.nanoTime() - moveStart;
+                    if (movesMade[mover] == moveNanos[mover].length) {
+                        moveNanos[mover] = Arrays.copyOf(moveNanos[mover], 2 * movesMade[mover]);
+                    }
+                    moveNanos[mover][movesMade[mover]++] = nanos;
+                }
+                board.storeNewDisk(sides[mover], column);
+                mover ^= 1;
+            }
+            outcomes[game] = (byte) (board.getWinner() == null ? -1
+                                                               : board.getWinner().ordinal());
+        }
+        return new long[][] {Arrays.copyOf(moveNanos[0], movesMade[0]),
+                             Arrays.copyOf(moveNanos[1], movesMade[1])};
+    }
+
+    private static long[] concat(long[] first, long[] second) {
+        long[] all = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, all, first.length, second.length);
+        return all;
+    }
+
+
+    /**
+     * Create engines from a short description:
+     * <br>&#09; {@code random} - a {@link RandomAIEngine};
+     * <br>&#09; {@code negamax[:depth[:millis]]} - a {@link NegamaxEngine} searching at most
+     *           {@code depth} moves ahead (default {@value NegamaxEngine#DEFAULT_DEPTH}),
+     *           for at most {@code millis} per move (default no time limit);
+     * <br>&#09; {@code mcts[:playouts[:millis]]} - a single threaded {@link MctsEngine} making
+     *           at most {@code playouts} playouts (default
+     *           {@value MctsEngine#DEFAULT_PLAYOUT_BUDGET}), for at most {@code millis} per
+     *           move (default no time limit).
+     * @param description of the engine.
+     * @return factory of such engines.
+     * @throws IllegalArgumentException for an unknown engine.
+     */
+    public static EngineFactory engineFactory(String description)
+            throws IllegalArgumentException {
+        final String[] parts = description.split(":");
+        if (parts[0].equals("random")) {
+            return new EngineFactory() {
+                @Override
+                public AIEngine create(long seed) {
+                    return new RandomAIEngine(seed);
+                }
+            };
+        }
+        if (parts[0].equals("negamax")) {
+            final int depth = parts.length > 1 ? Integer.parseInt(parts[1])
+                                               : NegamaxEngine.DEFAULT_DEPTH;
+            final long millis = parts.length > 2 ? Long.parseLong(parts[2]) : 0;
+            return new EngineFactory() {
+                @Override
+                public AIEngine create(long seed) {
+                    NegamaxEngine engine = new NegamaxEngine(depth, 0,
+                            new TranspositionTable(TOURNAMENT_TABLE_ENTRIES));
+                    engine.setTimeBudget(millis);
+                    return engine;
+                }
+            };
+        }
+        if (parts[0].equals("mcts")) {
+            final long playouts = parts.length > 1 ? Long.parseLong(parts[1])
+                                                   : MctsEngine.DEFAULT_PLAYOUT_BUDGET;
+            final long millis = parts.length > 2 ? Long.parseLong(parts[2]) : 0;
+            return new EngineFactory() {
+                @Override
+                public AIEngine create(long seed) {
+                    // Single threaded, the games being played in parallel already.
+                    MctsEngine engine = new MctsEngine(1, playouts, TOURNAMENT_TREE_NODES);
+                    engine.setTimeBudget(millis);
+                    return engine;
+                }
+            };
+        }
+        throw new IllegalArgumentException("Unknown engine " + description);
+    }
+
+    /**
+     * Play a tournament and print the results.
+     * <p>Arguments, all optional, as {@code --name value}:
+     * <br>&#09; {@code --rows}, {@code --columns}, {@code --win} - the geometry, 6 x 7 x 4
+     *           by default;
+     * <br>&#09; {@code --first}, {@code --second} - the engines, as described for
+     *           {@link #engineFactory(String)}, {@code negamax} and {@code random} by default;
+     * <br>&#09; {@code --games} - how many games to play, 1000 by default;
+     * <br>&#09; {@code --opening} - random moves every game starts with;
+     * <br>&#09; {@code --threads} - all cores by default;
+     * <br>&#09; {@code --seed} - 0 by default.</p>
+     */
+    public static void main(String[] args) {
+        int rows = 6;
+        int columns = 7;
+        int disksNeededForWin = 4;
+        String first = "negamax";
+        String second = "random";
+        int games = 1000;
+        int openingMoves = DEFAULT_OPENING_MOVES;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = 0;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            if (args[i].equals("--rows")) {
+                rows = Integer.parseInt(value);
+            }
+            else if (args[i].equals("--columns")) {
+                columns = Integer.parseInt(value);
+            }
+            else if (args[i].equals("--win")) {
+                disksNeededForWin = Integer.parseInt(value);
+            }
+            else if (args[i].equals("--first")) {
+                first = value;
+            }
+            else if (args[i].equals("--second")) {
+                second = value;
+            }
+            else if (args[i].equals("--games")) {
+                games = Integer.parseInt(value);
+            }
+            else if (args[i].equals("--opening")) {
+                openingMoves = Integer.parseInt(value);
+            }
+            else if (args[i].equals("--threads")) {
+                threads = Integer.parseInt(value);
+            }
+            else if (args[i].equals("--seed")) {
+                seed = Long.parseLong(value);
+            }
+            else {
+                throw new IllegalArgumentException("Unknown argument " + args[i]);
+            }
+        }
+
+        Tournament tournament = new Tournament(rows, columns, disksNeededForWin,
+                                               engineFactory(first), engineFactory(second));
+        tournament.setOpeningMoves(openingMoves);
+        tournament.setThreads(threads);
+        tournament.setSeed(seed);
+        System.out.printf(Locale.US, "%s vs %s on %d x %d, %d to win, %d threads, seed %d%n",
+                          first, second, rows, columns, disksNeededForWin, threads, seed);
+        System.out.print(tournament.play(games));
+    }
+}
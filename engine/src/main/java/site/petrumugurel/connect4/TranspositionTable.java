@@ -0,0 +1,155 @@
+package site.petrumugurel.connect4;
+
+
+/**
+ * Fixed size cache of search results, indexed by the Zobrist hash of positions.
+ * <p>All entries live in one preallocated {@code long[]} so the memory used never grows,
+ * however long the search. Every entry takes two {@code long}s - the full hash XORed with the
+ * data, used to verify the position, and the packed data:</p>
+ * <pre>
+ *      bits  0 - 31  score
+ *      bits 32 - 39  depth searched
+ *      bits 40 - 41  bound - {@link #EXACT} / {@link #LOWER_BOUND} / {@link #UPPER_BOUND}
+ *      bits 42 - 49  best column + 1, {@code 0} if not known
+ * </pre>
+ * <p>Entries are grouped in buckets of two with a two-tier replacement policy: the first entry
+ * of a bucket only gets replaced by results of searches at least as deep, the second one is
+ * always replaced, also receiving the results evicted from the first one. So deep results
+ * survive while recent shallow ones still get cached.</p>
+ * <p>The table can be shared by searches running on many threads without any locking.
+ * Storing the hash XORed with the data means that an entry half written by one thread while
+ * read by another - or torn {@code long} writes - fail the hash verification and are simply
+ * not found.</p>
+ */
+public class TranspositionTable {
+
+    /** Bound of the stored score. Valid data always has a non-zero bound. */
+    static final int EXACT       = 1;
+    static final int LOWER_BOUND = 2;
+    static final int UPPER_BOUND = 3;
+
+    /** What {@link #probe(long)} returns if the position is not in the table. */
+    static final long NOT_FOUND = 0L;
+
+    /** How many {@code long}s a bucket takes - two entries of {hash, data}. */
+    private static final int BUCKET_LONGS = 4;
+
+    private final long[] mTable;
+    private final int    mBucketsMask;
+
+
+    /**
+     * Construct a {@link TranspositionTable} able to hold up to {@code entries} results.
+     * @param entries how many results to keep, rounded down to a power of two.
+     *                Every one takes 16 bytes.
+     * @throws IllegalArgumentException if asked for less than 2 entries.
+     */
+    public TranspositionTable(int entries) throws IllegalArgumentException {
+        if (entries < 2) {
+            throw new IllegalArgumentException("Need room for at least one bucket of 2 entries");
+        }
+        int buckets = Integer.highestOneBit(entries) / 2;
+        mTable = new long[buckets * BUCKET_LONGS];
+        mBucketsMask = buckets - 1;
+    }
+
+    /**
+     * @return how many results the table can hold.
+     */
+    public int getCapacity() {
+        return mTable.length / 2;
+    }
+
+    /**
+     * Forget all stored results.
+     */
+    public void clear() {
+        for (int i = mTable.length - 1; i >= 0; i--) {
+            mTable[i] = 0L;
+        }
+    }
+
+    /**
+     * Look for the stored result of a position.
+     * @param hash Zobrist hash of the position.
+     * @return packed data of the result, to be read with {@link #score(long)},
+     *         {@link #depth(long)}, {@link #bound(long)} and {@link #column(long)}.<br>
+     *         {@link #NOT_FOUND} if there's no result for this position.
+     */
+    long probe(long hash) {
+        int bucket = ((int) hash & mBucketsMask) * BUCKET_LONGS;
+        long data = mTable[bucket + 1];
+        if ((mTable[bucket] ^ data) == hash && data != NOT_FOUND) {
+            return data;
+        }
+        data = mTable[bucket + 3];
+        if ((mTable[bucket + 2] ^ data) == hash && data != NOT_FOUND) {
+            return data;
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * Check if results of other positions live where a position would be stored.
+     * <br>Meant to be asked after {@link #probe(long)} didn't find the position, to tell an empty
+     * bucket from one where the position collided with others.
+     * @param hash Zobrist hash of the position.
+     * @return {@code true} if the bucket of the position holds any result.
+     */
+    boolean isBucketTaken(long hash) {
+        int bucket = ((int) hash & mBucketsMask) * BUCKET_LONGS;
+        return mTable[bucket + 1] != NOT_FOUND || mTable[bucket + 3] != NOT_FOUND;
+    }
+
+    /**
+     * Store the result of searching a position.
+     * @param hash Zobrist hash of the position.
+     * @param depth how deep the position was searched.
+     * @param score the result of the search.
+     * @param bound {@link #EXACT} / {@link #LOWER_BOUND} / {@link #UPPER_BOUND}.
+     * @param column best column found, {@code -1} if none.
+     */
+    void store(long hash, int depth, int score, int bound, int column) {
+        long data = (score & 0xFFFFFFFFL)
+                    | ((long) depth << 32)
+                    | ((long) bound << 40)
+                    | ((long) (column + 1) << 42);
+
+        int bucket = ((int) hash & mBucketsMask) * BUCKET_LONGS;
+        long deepKey = mTable[bucket];
+        long deepData = mTable[bucket + 1];
+        boolean samePosition = (deepKey ^ deepData) == hash;
+        if (samePosition || deepData == NOT_FOUND || depth >= depth(deepData)) {
+            if (!samePosition && deepData != NOT_FOUND) {
+                // the replaced deep result still gets a chance in the always-replace entry
+                mTable[bucket + 2] = deepKey;
+                mTable[bucket + 3] = deepData;
+            }
+            mTable[bucket] = hash ^ data;
+            mTable[bucket + 1] = data;
+        }
+        else {
+            mTable[bucket + 2] = hash ^ data;
+            mTable[bucket + 3] = data;
+        }
+    }
+
+    static int score(long data) {
+        return (int) data;
+    }
+
+    static int depth(long data) {
+        return (int) (data >>> 32) & 0xFF;
+    }
+
+    static int bound(long data) {
+        return (int) (data >>> 40) & 0x03;
+    }
+
+    /**
+     * @return best column stored with the result, {@code -1} if none.
+     */
+    static int column(long data) {
+        return ((int) (data >>> 42) & 0xFF) - 1;
+    }
+}
@@ -0,0 +1,190 @@
+package site.petrumugurel.connect4;
+
+import java.util.Arrays;
+
+
+/**
+ * Incrementally kept evaluation of a {@link Board}, for any size and any number of disks
+ * needed to win.
+ * <p>A window is any line of {@link Board#getDisksNeededForWin()} continuous positions - one
+ * which could become a winning line. Every window holding disks of only one side counts
+ * {@code 4 ^ (disks - 1)}, for or against that side.</p>
+ * <p>The number of disks of each side in every window is kept up to date as disks are stored
+ * and taken back, touching only the windows through the changed position. So the score of
+ * any position is always known, whatever the cost of scanning the board would be.</p>
+ * <p>Also keeps track of the threats - the empty positions which would complete a window for
+ * one side - separately for odd and even rows, counted from the bottom starting at 1. Which
+ * side gets to fill a position late in the game depends on the parity of its row, so threats
+ * on rows of the right parity are worth much more.</p>
+ */
+class WindowEvaluator {
+
+    private static final int POSITIONS = WinningLines.POSITIONS;
+
+    private final int mRows;
+    private final int mDisksNeededForWin;
+    /** Score of a window holding {@code n} disks of only one side. */
+    private final int[] mWindowValues;
+    /** All windows, shared with all boards of the same geometry. */
+    private final WinningLines mWindows;
+
+    /** Disks in every window - {@code [2 * window + side ordinal]}. */
+    private final int[] mWindowDisks;
+    /** Sum of the bit indexes of the occupied positions of every window. */
+    private final int[] mOccupiedIndexSums;
+    /**
+     * How many windows every empty position would complete for each side -
+     * {@code [side ordinal * POSITIONS + bit index]}.
+     */
+    private final int[] mThreatWindows;
+    /** Positions being threats - {@code [2 * side ordinal + (0 for odd rows, 1 for even)]}. */
+    private final int[] mThreats;
+    /** Score of the position from {@link Board.PLAYERS#PLAYER}'s point of view. */
+    private int         mScore;
+
+
+    /**
+     * Construct the evaluator of an empty board.
+     * @param rows how many rows the board has.
+     * @param columns how many columns the board has.
+     * @param disksNeededForWin how many disks in a line are needed to win.
+     */
+    WindowEvaluator(int rows, int columns, int disksNeededForWin) {
+        mRows = rows;
+        mDisksNeededForWin = disksNeededForWin;
+        mWindowValues = new int[disksNeededForWin + 1];
+        for (int disks = 1; disks <= disksNeededForWin; disks++) {
+            mWindowValues[disks] = 1 << (2 * (disks - 1));
+        }
+
+        mWindows = WinningLines.forGeometry(rows, columns, disksNeededForWin);
+
+        mWindowDisks = new int[2 * mWindows.getLinesNumber()];
+        mOccupiedIndexSums = new int[mWindows.getLinesNumber()];
+        mThreatWindows = new int[2 * POSITIONS];
+        mThreats = new int[4];
+    }
+
+    /**
+     * Construct an evaluator with the same state as {@code other}, which can then be updated
+     * without affecting {@code other}.
+     */
+    WindowEvaluator(WindowEvaluator other) {
+        mRows = other.mRows;
+        mDisksNeededForWin = other.mDisksNeededForWin;
+        mWindowValues = other.mWindowValues;
+        mWindows = other.mWindows;
+        mWindowDisks = other.mWindowDisks.clone();
+        mOccupiedIndexSums = other.mOccupiedIndexSums.clone();
+        mThreatWindows = other.mThreatWindows.clone();
+        mThreats = other.mThreats.clone();
+        mScore = other.mScore;
+    }
+
+
+    /**
+     * Forget all disks.
+     */
+    void clear() {
+        Arrays.fill(mWindowDisks, 0);
+        Arrays.fill(mOccupiedIndexSums, 0);
+        Arrays.fill(mThreatWindows, 0);
+        Arrays.fill(mThreats, 0);
+        mScore = 0;
+    }
+
+    /**
+     * To be called for every disk stored on the board.
+     * @param player on behalf of whom the disk was stored.
+     * @param bitIndex position of the disk, as given by {@link BitBoard#bitIndex}.
+     */
+    void diskAdded(Board.PLAYERS player, int bitIndex) {
+        update(player.ordinal(), bitIndex, 1);
+    }
+
+    /**
+     * To be called for every disk taken back from the board.
+     * @param player on behalf of whom the disk was stored.
+     * @param bitIndex position of the disk, as given by {@link BitBoard#bitIndex}.
+     */
+    void diskRemoved(Board.PLAYERS player, int bitIndex) {
+        update(player.ordinal(), bitIndex, -1);
+    }
+
+    /**
+     * Score of the position, in {@code O(1)}.
+     * @param side from whose point of view to score.
+     * @return positive score if {@code side} has better chances, negative otherwise.
+     */
+    int getScore(Board.PLAYERS side) {
+        return side == Board.PLAYERS.PLAYER ? mScore : -mScore;
+    }
+
+    /**
+     * Count the empty positions where a disk would win the game for {@code side}.
+     * @param side whose threats to count.
+     * @param oddRows {@code true} for the threats on odd rows - the 1st, 3rd... counting from
+     *                the bottom, {@code false} for those on even rows.
+     * @return number of threat positions, each counted once whatever the number of lines it
+     *         would complete.
+     */
+    int getThreats(Board.PLAYERS side, boolean oddRows) {
+        return mThreats[2 * side.ordinal() + (oddRows ? 0 : 1)];
+    }
+
+
+    /**
+     * Update all windows through a position.
+     * @param side ordinal of the side owning the disk.
+     * @param bitIndex position of the disk.
+     * @param change {@code 1} for a stored disk, {@code -1} for one taken back.
+     */
+    private void update(int side, int bitIndex, int change) {
+        for (int w : mWindows.linesThrough(bitIndex)) {
+            int playerDisks = mWindowDisks[2 * w];
+            int aiDisks = mWindowDisks[2 * w + 1];
+            mScore -= windowScore(playerDisks, aiDisks);
+            updateThreat(w, playerDisks, aiDisks, -1);
+
+            mWindowDisks[2 * w + side] += change;
+            mOccupiedIndexSums[w] += change * bitIndex;
+
+            playerDisks = mWindowDisks[2 * w];
+            aiDisks = mWindowDisks[2 * w + 1];
+            mScore += windowScore(playerDisks, aiDisks);
+            updateThreat(w, playerDisks, aiDisks, 1);
+        }
+    }
+
+    private int windowScore(int playerDisks, int aiDisks) {
+        if (aiDisks == 0) {
+            return mWindowValues[playerDisks];
+        }
+        return playerDisks == 0 ? -mWindowValues[aiDisks] : 0;
+    }
+
+    /**
+     * If a window misses only one disk to be completed by a side, count it as a threat at its
+     * only empty position.
+     * @param change {@code 1} to add the threat, {@code -1} to remove it.
+     */
+    private void updateThreat(int window, int playerDisks, int aiDisks, int change) {
+        int side;
+        if (playerDisks == mDisksNeededForWin - 1 && aiDisks == 0) {
+            side = 0;
+        }
+        else if (aiDisks == mDisksNeededForWin - 1 && playerDisks == 0) {
+            side = 1;
+        }
+        else {
+            return;
+        }
+
+        // All positions but one are occupied, so the sums differ by exactly its index.
+        int empty = mWindows.indexSum(window) - mOccupiedIndexSums[window];
+        int windows = mThreatWindows[side * POSITIONS + empty] += change;
+        if ((change > 0 && windows == 1) || (change < 0 && windows == 0)) {
+            mThreats[2 * side + (empty % (mRows + 1)) % 2] += change;
+        }
+    }
+}
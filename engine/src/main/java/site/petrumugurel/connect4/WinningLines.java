@@ -0,0 +1,199 @@
+package site.petrumugurel.connect4;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+
+/**
+ * All the lines which could win a game on a board of a given geometry - rows, columns and
+ * disks needed to win - as bitboard masks laid out as explained in {@link BitBoard}, together
+ * with the lines passing through every position.
+ * <p>The lines of a geometry never change so they are computed only once, the first time a
+ * geometry is asked for through {@link #forGeometry(int, int, int)}, and then shared by all
+ * boards and evaluators using it, from any thread.</p>
+ */
+final class WinningLines {
+
+    /** Number of bits of a {@link Board} bitboard, the range of the position indexes. */
+    static final int POSITIONS = 2 * BitBoard.WORD_SIZE;
+
+    /**
+     * Lines of every geometry asked for so far, keyed by {@link #geometryKey(int, int, int)}.
+     * <br>At most {@code 7 * 7 * 8} of them - every legal geometry.
+     */
+    private static final ConcurrentMap<Integer, WinningLines> CACHE =
+            new ConcurrentHashMap<Integer, WinningLines>();
+
+    /** Masks of all lines, two words each - {@code [2 * line]} low, {@code [2 * line + 1]} high. */
+    private final long[]  mMasks;
+    /** Sum of the bit indexes of all positions of every line. */
+    private final int[]   mIndexSums;
+    /** Lines through every position, indexed by bit index. */
+    private final int[][] mPositionLines;
+
+
+    /**
+     * Get the lines of a geometry, computing them only if no one asked for it before.
+     * @param rows how many rows the board has.
+     * @param columns how many columns the board has.
+     * @param disksNeededForWin how many disks in a line are needed to win.
+     * @return lines shared with everyone else using the same geometry. Never to be modified.
+     */
+    static WinningLines forGeometry(int rows, int columns, int disksNeededForWin) {
+        Integer key = geometryKey(rows, columns, disksNeededForWin);
+        WinningLines lines = CACHE.get(key);
+        if (lines == null) {
+            // Two threads might both compute the same lines but only one copy gets to be used.
+            lines = new WinningLines(rows, columns, disksNeededForWin);
+            WinningLines previous = CACHE.putIfAbsent(key, lines);
+            if (previous != null) {
+                lines = previous;
+            }
+        }
+        return lines;
+    }
+
+    private static int geometryKey(int rows, int columns, int disksNeededForWin) {
+        return (rows << 16) | (columns << 8) | disksNeededForWin;
+    }
+
+    private WinningLines(int rows, int columns, int disksNeededForWin) {
+        // The shift between positions and the {column, height} step of every direction.
+        int[] shifts = BitBoard.directionShifts(rows);
+        int[][] steps = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+        int last = disksNeededForWin - 1;
+
+        int[][] lines = new int[4 * rows * columns][];
+        int linesNumber = 0;
+        for (int d = 0; d < shifts.length; d++) {
+            for (int col = 0; col + steps[d][0] * last < columns; col++) {
+                for (int height = 0; height < rows; height++) {
+                    int lastHeight = height + steps[d][1] * last;
+                    if (lastHeight < 0 || lastHeight >= rows) {
+                        continue;
+                    }
+                    int[] line = new int[disksNeededForWin];
+                    for (int i = 0; i < disksNeededForWin; i++) {
+                        line[i] = col * (rows + 1) + height + i * shifts[d];
+                    }
+                    lines[linesNumber++] = line;
+                }
+            }
+        }
+
+        mMasks = new long[2 * linesNumber];
+        mIndexSums = new int[linesNumber];
+        int[] linesThrough = new int[POSITIONS];
+        for (int l = 0; l < linesNumber; l++) {
+            for (int position : lines[l]) {
+                mMasks[2 * l + (position >>> 6)] |= 1L << (position & (BitBoard.WORD_SIZE - 1));
+                mIndexSums[l] += position;
+                linesThrough[position]++;
+            }
+        }
+        mPositionLines = new int[POSITIONS][];
+        for (int position = 0; position < POSITIONS; position++) {
+            mPositionLines[position] = new int[linesThrough[position]];
+            linesThrough[position] = 0;
+        }
+        for (int l = 0; l < linesNumber; l++) {
+            for (int position : lines[l]) {
+                mPositionLines[position][linesThrough[position]++] = l;
+            }
+        }
+    }
+
+
+    /**
+     * @return how many lines there are, each being identified by an index in
+     *         {@code [0, getLinesNumber())}.
+     */
+    int getLinesNumber() {
+        return mIndexSums.length;
+    }
+
+    /**
+     * @param bitIndex position on the board, as given by {@link BitBoard#bitIndex}.
+     * @return indexes of all lines through the position. Never to be modified.
+     */
+    int[] linesThrough(int bitIndex) {
+        return mPositionLines[bitIndex];
+    }
+
+    /**
+     * @return sum of the bit indexes of all positions of the line.
+     */
+    int indexSum(int line) {
+        return mIndexSums[line];
+    }
+
+    /**
+     * Find the free positions which would complete a line of a side - its threats.
+     * @param ownLow bits 0 - 63 of the side's bitboard.
+     * @param ownHigh bits 64 - 127 of the side's bitboard.
+     * @param otherLow bits 0 - 63 of the other side's bitboard.
+     * @param otherHigh bits 64 - 127 of the other side's bitboard.
+     * @param threats where to write the bitboard of the threats - {low, high}.
+     */
+    void findThreats(long ownLow, long ownHigh, long otherLow, long otherHigh, long[] threats) {
+        long low = 0;
+        long high = 0;
+        for (int line = mIndexSums.length - 1; line >= 0; line--) {
+            long missingLow = mMasks[2 * line] & ~ownLow;
+            long missingHigh = mMasks[2 * line + 1] & ~ownHigh;
+            if (Long.bitCount(missingLow) + Long.bitCount(missingHigh) == 1
+                && ((missingLow & otherLow) | (missingHigh & otherHigh)) == 0) {
+                low |= missingLow;
+                high |= missingHigh;
+            }
+        }
+        threats[0] = low;
+        threats[1] = high;
+    }
+
+    /**
+     * Check if any line could still be completed - by either side.
+     * @param firstLow bits 0 - 63 of the bitboard of one side.
+     * @param firstHigh bits 64 - 127 of the bitboard of one side.
+     * @param secondLow bits 0 - 63 of the bitboard of the other side.
+     * @param secondHigh bits 64 - 127 of the bitboard of the other side.
+     * @return {@code false} if every line holds disks of both sides.
+     */
+    boolean isAnyLineOpen(long firstLow, long firstHigh, long secondLow, long secondHigh) {
+        for (int line = mIndexSums.length - 1; line >= 0; line--) {
+            long lowMask = mMasks[2 * line];
+            long highMask = mMasks[2 * line + 1];
+            if (((firstLow & lowMask) | (firstHigh & highMask)) == 0
+                || ((secondLow & lowMask) | (secondHigh & highMask)) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check if a bitboard holds any complete line.
+     * @param low bits 0 - 63 of the bitboard.
+     * @param high bits 64 - 127 of the bitboard.
+     */
+    boolean isAnyLineComplete(long low, long high) {
+        for (int line = mIndexSums.length - 1; line >= 0; line--) {
+            if (isComplete(line, low, high)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check if all positions of a line are set in a bitboard.
+     * @param line index of the line.
+     * @param low bits 0 - 63 of the bitboard.
+     * @param high bits 64 - 127 of the bitboard.
+     */
+    boolean isComplete(int line, long low, long high) {
+        long lowMask = mMasks[2 * line];
+        long highMask = mMasks[2 * line + 1];
+        return (low & lowMask) == lowMask && (high & highMask) == highMask;
+    }
+}
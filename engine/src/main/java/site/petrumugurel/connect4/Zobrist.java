@@ -0,0 +1,54 @@
+package site.petrumugurel.connect4;
+
+import java.util.Random;
+
+
+/**
+ * Zobrist keys for every (side, column, height) combination of the biggest possible
+ * {@link Board}.
+ * <p>The hash of a position is the XOR of the keys of all its disks so it can be updated
+ * incrementally with a single XOR whenever a disk is stored. Keys are indexed by the height of
+ * a disk in its column, not by its row, so the same key works for any number of rows.</p>
+ */
+final class Zobrist {
+
+    /** Fixed seed so that hashes stay the same between runs (and between devices). */
+    private static final long SEED = 0x436F6E6E65637434L;
+
+    private static final long[] KEYS = new long[2 * Board.MAX_COLUMNS * Board.MAX_ROWS];
+    private static final long   AI_TO_MOVE_KEY;
+
+    static {
+        Random random = new Random(SEED);
+        for (int i = 0; i < KEYS.length; i++) {
+            KEYS[i] = random.nextLong();
+        }
+        AI_TO_MOVE_KEY = random.nextLong();
+    }
+
+    private Zobrist() {
+        // only static helpers here
+    }
+
+
+    /**
+     * Get the key of a disk.
+     * @param player on behalf of whom the disk was stored.
+     * @param column board index of the column of the disk.
+     * @param height how many disks are below it in the column.
+     * @return random, but always the same, 64 bits key.
+     */
+    static long key(Board.PLAYERS player, int column, int height) {
+        return KEYS[(player.ordinal() * Board.MAX_COLUMNS + column) * Board.MAX_ROWS + height];
+    }
+
+    /**
+     * The disks alone don't say who's to move if either side can start the game, so searches
+     * also XOR this into the position hash.
+     * @param side who's to move.
+     * @return key to XOR into the position hash.
+     */
+    static long sideToMoveKey(Board.PLAYERS side) {
+        return side == Board.PLAYERS.AI ? AI_TO_MOVE_KEY : 0L;
+    }
+}
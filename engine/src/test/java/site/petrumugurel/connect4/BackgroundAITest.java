@@ -0,0 +1,91 @@
+package site.petrumugurel.connect4;
+
+import org.junit.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class BackgroundAITest {
+
+    /** Stands in for the UI thread - callbacks only run when the test takes them. */
+    private final BlockingQueue<Runnable> mCallbacks = new LinkedBlockingQueue<>();
+    private final Executor mCallbackExecutor = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            mCallbacks.add(command);
+        }
+    };
+    private final int[] mChosenColumn = {-1};
+    private final BackgroundAI.OnMoveChosenListener mListener
+            = new BackgroundAI.OnMoveChosenListener() {
+        @Override
+        public void onMoveChosen(int column) {
+            mChosenColumn[0] = column;
+        }
+    };
+
+    private Board boardWithAIWinInColumn3() {
+        Board board = new Board(6, 7, 4);
+        for (int col = 0; col < 3; col++) {
+            board.storeNewDisk(Board.PLAYERS.AI, col);
+            board.storeNewDisk(Board.PLAYERS.PLAYER, 6);
+        }
+        board.storeNewDisk(Board.PLAYERS.PLAYER, 5);
+        return board;
+    }
+
+    @Test
+    public void deliversMoveThroughCallbackExecutor() throws Exception {
+        BackgroundAI ai = new BackgroundAI(new NegamaxEngine(6, 0), mCallbackExecutor);
+        ai.setThinkingTime(50);
+        ai.requestMove(boardWithAIWinInColumn3(), Board.PLAYERS.AI, mListener);
+
+        Runnable callback = mCallbacks.poll(5, TimeUnit.SECONDS);
+        assertNotNull(callback);
+        assertEquals(-1, mChosenColumn[0]);     // nothing delivered outside the callback
+        callback.run();
+        assertEquals(3, mChosenColumn[0]);
+        ai.shutdown();
+    }
+
+    @Test
+    public void cancelledMoveIsNeverDelivered() throws Exception {
+        BackgroundAI ai = new BackgroundAI(new NegamaxEngine(6, 0), mCallbackExecutor);
+        ai.setThinkingTime(50);
+        ai.requestMove(boardWithAIWinInColumn3(), Board.PLAYERS.AI, mListener);
+        ai.cancel();
+
+        Runnable callback = mCallbacks.poll(500, TimeUnit.MILLISECONDS);
+        if (callback != null) {
+            callback.run();
+        }
+        assertEquals(-1, mChosenColumn[0]);
+        ai.shutdown();
+    }
+
+    @Test
+    public void ponderingIsStoppedByTheNextRequest() throws Exception {
+        Board board = new Board(6, 7, 4);
+        board.storeNewDisk(Board.PLAYERS.PLAYER, 3);
+        board.storeNewDisk(Board.PLAYERS.AI, 3);
+        BackgroundAI ai = new BackgroundAI(new NegamaxEngine(NegamaxEngine.MAX_PLIES, 0),
+                                           mCallbackExecutor);
+        ai.setThinkingTime(50);
+
+        ai.startPondering(board, Board.PLAYERS.PLAYER);
+        Thread.sleep(300);      // prediction done, now pondering without a time limit
+        board.storeNewDisk(Board.PLAYERS.PLAYER, 3);
+        ai.requestMove(board, Board.PLAYERS.AI, mListener);
+
+        Runnable callback = mCallbacks.poll(5, TimeUnit.SECONDS);
+        assertNotNull(callback);
+        callback.run();
+        assertTrue(mChosenColumn[0] >= 0 && mChosenColumn[0] < 7);
+        assertEquals(1, ai.getPonderHits() + ai.getPonderMisses());
+        ai.shutdown();
+    }
+}
@@ -0,0 +1,249 @@
+package site.petrumugurel.connect4;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BoardTest {
+
+    @Test
+    public void disksStackFromTheBottom() throws Exception {
+        Board board = new Board(6, 7, 4);
+
+        assertEquals(5, board.storeNewDisk(Board.PLAYERS.PLAYER, 3));
+        assertEquals(4, board.storeNewDisk(Board.PLAYERS.AI, 3));
+        assertEquals(Board.PLAYER_DISK, board.getDiskAt(5, 3));
+        assertEquals(Board.AI_DISK, board.getDiskAt(4, 3));
+        assertEquals(Board.IS_FREE, board.getDiskAt(3, 3));
+    }
+
+    @Test
+    public void fullColumnRejectsDisks() throws Exception {
+        Board board = new Board(4, 4, 3);
+        for (int i = 0; i < 4; i++) {
+            assertEquals(3 - i, board.storeNewDisk(i % 2 == 0 ? Board.PLAYERS.PLAYER
+                                                              : Board.PLAYERS.AI, 0));
+        }
+        assertEquals(Board.COLUMN_FULL, board.storeNewDisk(Board.PLAYERS.PLAYER, 0));
+    }
+
+    @Test
+    public void verticalLineWinsOnLargestBoard() throws Exception {
+        Board board = new Board(10, 10, 9);
+        for (int i = 0; i < 8; i++) {
+            board.storeNewDisk(Board.PLAYERS.AI, 9);
+            board.storeNewDisk(Board.PLAYERS.PLAYER, i);
+        }
+        assertNull(board.getWinner());
+        board.storeNewDisk(Board.PLAYERS.AI, 9);
+        assertEquals(Board.PLAYERS.AI, board.getWinner());
+    }
+
+    @Test
+    public void horizontalLineAcrossBothWordsWins() throws Exception {
+        // Columns 5 - 9 of a 10 rows board live in the high word of the bitboard.
+        Board board = new Board(10, 10, 6);
+        for (int col = 4; col < 9; col++) {
+            board.storeNewDisk(Board.PLAYERS.PLAYER, col);
+            board.storeNewDisk(Board.PLAYERS.AI, col);
+        }
+        assertNull(board.getWinner());
+        board.storeNewDisk(Board.PLAYERS.PLAYER, 9);
+        assertEquals(Board.PLAYERS.PLAYER, board.getWinner());
+    }
+
+    @Test
+    public void diagonalLinesWin() throws Exception {
+        Board upwards = new Board(4, 4, 3);
+        upwards.storeNewDisk(Board.PLAYERS.PLAYER, 0);
+        upwards.storeNewDisk(Board.PLAYERS.AI, 1);
+        upwards.storeNewDisk(Board.PLAYERS.PLAYER, 1);
+        upwards.storeNewDisk(Board.PLAYERS.AI, 2);
+        upwards.storeNewDisk(Board.PLAYERS.AI, 2);
+        assertNull(upwards.getWinner());
+        upwards.storeNewDisk(Board.PLAYERS.PLAYER, 2);
+        assertEquals(Board.PLAYERS.PLAYER, upwards.getWinner());
+
+        Board downwards = new Board(4, 4, 3);
+        downwards.storeNewDisk(Board.PLAYERS.PLAYER, 3);
+        downwards.storeNewDisk(Board.PLAYERS.AI, 2);
+        downwards.storeNewDisk(Board.PLAYERS.PLAYER, 2);
+        downwards.storeNewDisk(Board.PLAYERS.AI, 1);
+        downwards.storeNewDisk(Board.PLAYERS.AI, 1);
+        assertNull(downwards.getWinner());
+        downwards.storeNewDisk(Board.PLAYERS.PLAYER, 1);
+        assertEquals(Board.PLAYERS.PLAYER, downwards.getWinner());
+    }
+
+    @Test
+    public void fullBoardWithoutLineIsDraw() throws Exception {
+        Board board = new Board(4, 4, 3);
+        // Rows filled bottom-up as P P A A / A A P P / P P A A / A A P P - no line of 3.
+        int[] columns = {0, 2, 1, 3, 2, 0, 3, 1, 0, 2, 1, 3, 2, 0, 3, 1};
+        for (int i = 0; i < columns.length; i++) {
+            board.storeNewDisk(i % 2 == 0 ? Board.PLAYERS.PLAYER : Board.PLAYERS.AI, columns[i]);
+        }
+        assertNull(board.getWinner());
+        assertTrue(board.isDraw());
+    }
+
+    @Test
+    public void modifiedDisksToWinIsUsedForNextMoves() throws Exception {
+        Board board = new Board(6, 7, 4);
+        board.modifyNoOfDisksToWin(2);
+        board.storeNewDisk(Board.PLAYERS.PLAYER, 0);
+        board.storeNewDisk(Board.PLAYERS.AI, 6);
+        assertNull(board.getWinner());
+        board.storeNewDisk(Board.PLAYERS.PLAYER, 1);
+        assertEquals(Board.PLAYERS.PLAYER, board.getWinner());
+    }
+
+    @Test
+    public void fullColumnsAreNotLegalMoves() throws Exception {
+        Board board = new Board(4, 5, 3);
+        for (int i = 0; i < 4; i++) {
+            board.storeNewDisk(i % 2 == 0 ? Board.PLAYERS.PLAYER : Board.PLAYERS.AI, 2);
+        }
+        assertTrue(board.isColumnFull(2));
+        assertFalse(board.isColumnFull(1));
+        assertEquals(0x1B, board.getPlayableColumns());
+
+        int[] moves = new int[5];
+        assertEquals(4, board.getLegalMoves(moves));
+        assertEquals(0, moves[0]);
+        assertEquals(1, moves[1]);
+        assertEquals(3, moves[2]);
+        assertEquals(4, moves[3]);
+
+        board.clearBoard();
+        assertEquals(0x1F, board.getPlayableColumns());
+    }
+
+    @Test
+    public void aiMovePositionIsPacked() throws Exception {
+        Board board = new Board(5, 6, 3);
+        board.setAIEngine(new RandomAIEngine(7));
+
+        int position = board.makeAIMove();
+        assertEquals(4, Board.rowOf(position));
+        assertEquals(Board.AI_DISK, board.getDiskAt(4, Board.columnOf(position)));
+    }
+
+    @Test
+    public void noAIMoveOnceGameIsOver() throws Exception {
+        Board board = new Board(4, 4, 2);
+        board.storeNewDisk(Board.PLAYERS.PLAYER, 0);
+        board.storeNewDisk(Board.PLAYERS.AI, 3);
+        board.storeNewDisk(Board.PLAYERS.PLAYER, 1);
+
+        assertEquals(Board.PLAYERS.PLAYER, board.getWinner());
+        assertEquals(1, board.getScores()[0]);
+        assertEquals(Board.NO_MOVE, board.makeAIMove());
+    }
+
+    @Test
+    public void undoRestoresEverything() throws Exception {
+        Board board = new Board(6, 7, 4);
+        int[] columns = {3, 3, 2, 2, 1, 1};
+        for (int i = 0; i < columns.length; i++) {
+            board.storeNewDisk(i % 2 == 0 ? Board.PLAYERS.PLAYER : Board.PLAYERS.AI, columns[i]);
+        }
+        long hash = board.getHash();
+        int playableColumns = board.getPlayableColumns();
+
+        board.storeNewDisk(Board.PLAYERS.PLAYER, 4);    // completes 1 - 4 on the bottom row
+        assertEquals(Board.PLAYERS.PLAYER, board.getWinner());
+        assertEquals(1, board.getScores()[0]);
+
+        assertEquals(Board.PLAYERS.PLAYER, board.getLastMover());
+        int position = board.undoMove();
+        assertEquals(5, Board.rowOf(position));
+        assertEquals(4, Board.columnOf(position));
+        assertNull(board.getWinner());
+        assertEquals(0, board.getScores()[0]);
+        assertEquals(hash, board.getHash());
+        assertEquals(playableColumns, board.getPlayableColumns());
+        assertEquals(columns.length, board.getMovesNumber());
+        assertEquals(Board.IS_FREE, board.getDiskAt(5, 4));
+        assertEquals(Board.PLAYERS.AI, board.getLastMover());
+
+        while (board.undoMove() != Board.NO_MOVE) {
+            // take everything back
+        }
+        assertEquals(0L, board.getHash());
+        assertNull(board.getLastMover());
+        assertEquals(Board.IS_FREE, board.getDiskAt(5, 3));
+    }
+
+    @Test
+    public void undoClearsDrawAndReopensColumn() throws Exception {
+        Board board = new Board(4, 4, 3);
+        int[] columns = {0, 2, 1, 3, 2, 0, 3, 1, 0, 2, 1, 3, 2, 0, 3, 1};
+        for (int i = 0; i < columns.length; i++) {
+            board.storeNewDisk(i % 2 == 0 ? Board.PLAYERS.PLAYER : Board.PLAYERS.AI, columns[i]);
+        }
+        assertTrue(board.isDraw());
+        assertEquals(0, board.getPlayableColumns());
+
+        board.undoMove();
+        assertFalse(board.isDraw());
+        assertFalse(board.isColumnFull(1));
+        assertEquals(0, board.storeNewDisk(Board.PLAYERS.AI, 1));
+        assertTrue(board.isDraw());
+    }
+
+    @Test
+    public void winningMoveIsFoundWithoutStoringIt() throws Exception {
+        Board board = new Board(6, 7, 4);
+        int[] columns = {3, 3, 2, 2, 1, 1};
+        for (int i = 0; i < columns.length; i++) {
+            board.storeNewDisk(i % 2 == 0 ? Board.PLAYERS.PLAYER : Board.PLAYERS.AI, columns[i]);
+        }
+        long hash = board.getHash();
+
+        assertTrue(board.isWinningMove(Board.PLAYERS.PLAYER, 0));
+        assertTrue(board.isWinningMove(Board.PLAYERS.PLAYER, 4));
+        assertFalse(board.isWinningMove(Board.PLAYERS.AI, 4));
+        assertFalse(board.isWinningMove(Board.PLAYERS.PLAYER, 5));
+        assertEquals(hash, board.getHash());
+        assertNull(board.getWinner());
+    }
+
+    @Test
+    public void evaluationCatchesUpWhenEnabledAgain() throws Exception {
+        Board evaluated = new Board(6, 7, 4);
+        Board notEvaluated = new Board(6, 7, 4);
+        notEvaluated.setEvaluationEnabled(false);
+        assertNull(notEvaluated.getEvaluator());
+
+        int[] columns = {3, 2, 3, 4, 1};
+        for (int i = 0; i < columns.length; i++) {
+            Board.PLAYERS side = i % 2 == 0 ? Board.PLAYERS.PLAYER : Board.PLAYERS.AI;
+            evaluated.storeNewDisk(side, columns[i]);
+            notEvaluated.storeNewDisk(side, columns[i]);
+        }
+        notEvaluated.setEvaluationEnabled(true);
+        assertEquals(evaluated.getEvaluator().getScore(Board.PLAYERS.PLAYER),
+                     notEvaluated.getEvaluator().getScore(Board.PLAYERS.PLAYER));
+    }
+
+    @Test
+    public void threatsAreFreePositionsCompletingALine() throws Exception {
+        Board board = new Board(6, 7, 4);
+        int[] columns = {1, 1, 2, 2, 3};
+        for (int i = 0; i < columns.length; i++) {
+            board.storeNewDisk(i % 2 == 0 ? Board.PLAYERS.PLAYER : Board.PLAYERS.AI, columns[i]);
+        }
+        long[] threats = new long[2];
+
+        // Three on the bottom row, open on both ends.
+        board.findThreats(Board.PLAYERS.PLAYER, threats);
+        assertEquals((1L << BitBoard.bitIndex(6, 5, 0)) | (1L << BitBoard.bitIndex(6, 5, 4)),
+                     threats[0]);
+        assertEquals(0L, threats[1]);
+
+        board.findThreats(Board.PLAYERS.AI, threats);
+        assertEquals(0L, threats[0] | threats[1]);
+        assertFalse(board.isDeadDraw());
+    }
+}
@@ -0,0 +1,116 @@
+package site.petrumugurel.connect4;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class EndgameSolverTest {
+
+    @Test
+    public void firstPlayerWinsTheSmallestGame() throws Exception {
+        Board board = new Board(4, 4, 3);
+        EndgameSolver solver = new EndgameSolver(new TranspositionTable(1 << 16));
+        assertEquals(EndgameSolver.WIN, solver.solve(board, Board.PLAYERS.PLAYER));
+        assertEquals(0, board.getMovesNumber());
+
+        board.storeNewDisk(Board.PLAYERS.PLAYER, solver.getBestColumn());
+        assertEquals(EndgameSolver.LOSS, solver.solve(board, Board.PLAYERS.AI));
+    }
+
+    @Test
+    public void doubleThreatIsAWin() throws Exception {
+        // Player can get three on the bottom row with both ends open.
+        Board board = new Board(6, 7, 4);
+        board.storeNewDisk(Board.PLAYERS.PLAYER, 2);
+        board.storeNewDisk(Board.PLAYERS.AI, 2);
+        board.storeNewDisk(Board.PLAYERS.PLAYER, 3);
+        board.storeNewDisk(Board.PLAYERS.AI, 3);
+
+        EndgameSolver solver = new EndgameSolver(new TranspositionTable(1 << 16));
+        assertEquals(EndgameSolver.WIN, solver.solve(board, Board.PLAYERS.PLAYER));
+        int column = solver.getBestColumn();
+        assertTrue("played " + column, column == 1 || column == 4);
+    }
+
+    @Test
+    public void deadDrawIsReportedWithoutSearching() throws Exception {
+        Board board = new Board(5, 5, 4);
+        int[] columns = {2, 1, 2, 2, 1, 1, 3, 2, 1, 3, 3, 2, 4, 0, 1, 4, 0, 0, 4};
+        for (int i = 0; i < columns.length; i++) {
+            board.storeNewDisk(i % 2 == 0 ? Board.PLAYERS.PLAYER : Board.PLAYERS.AI, columns[i]);
+        }
+        assertTrue(board.isDeadDraw());
+        assertFalse(board.isDraw());
+
+        EndgameSolver solver = new EndgameSolver(new TranspositionTable(1 << 10));
+        assertEquals(EndgameSolver.DRAW, solver.solve(board, Board.PLAYERS.AI));
+        assertEquals(0, solver.getNodes());
+        assertFalse(board.isColumnFull(solver.getBestColumn()));
+    }
+
+    @Test
+    public void agreesWithPlainMinimax() throws Exception {
+        Random random = new Random(11);
+        TranspositionTable table = new TranspositionTable(1 << 12);
+        EndgameSolver solver = new EndgameSolver(table);
+        int[][] geometries = {{4, 4, 3}, {4, 5, 3}, {5, 5, 4}, {6, 7, 4}};
+        int solved = 0;
+        for (int[] geometry : geometries) {
+            // Results cached for one geometry are not valid for another.
+            table.clear();
+            for (int game = 0; game < 100; game++) {
+                Board board = new Board(geometry[0], geometry[1], geometry[2]);
+                Board.PLAYERS side = Board.PLAYERS.PLAYER;
+                int emptyPositions = 5 + random.nextInt(4);
+                while (board.getWinner() == null && !board.isDraw()
+                       && geometry[0] * geometry[1] - board.getMovesNumber() > emptyPositions) {
+                    int column;
+                    do {
+                        column = random.nextInt(geometry[1]);
+                    } while (board.isColumnFull(column));
+                    board.storeNewDisk(side, column);
+                    side = NegamaxEngine.opponent(side);
+                }
+                if (board.getWinner() != null || board.isDraw()) {
+                    continue;
+                }
+
+                assertEquals(minimax(board, side), solver.solve(board, side));
+                solved++;
+            }
+        }
+        assertTrue(solved > 50);
+    }
+
+    @Test
+    public void stopsWhenOutOfBudget() throws Exception {
+        EndgameSolver solver = new EndgameSolver(new TranspositionTable(1 << 10));
+        solver.setBudgets(0, 1000);
+        assertEquals(EndgameSolver.UNKNOWN,
+                     solver.solve(new Board(5, 5, 4), Board.PLAYERS.PLAYER));
+    }
+
+    /**
+     * Win / draw / loss of the side to move, trying every move.
+     */
+    private static int minimax(Board board, Board.PLAYERS side) {
+        int best = EndgameSolver.LOSS;
+        if (board.getPlayableColumns() == 0) {
+            return EndgameSolver.DRAW;
+        }
+        for (int column = 0; column < board.getNumberOfColumns(); column++) {
+            if (board.isColumnFull(column)) {
+                continue;
+            }
+            board.storeNewDisk(side, column);
+            int score = board.getWinner() != null ? EndgameSolver.WIN
+                      : board.isDraw()            ? EndgameSolver.DRAW
+                                                  : -minimax(board, NegamaxEngine.opponent(side));
+            board.undoMove();
+            best = Math.max(best, score);
+        }
+        return best;
+    }
+}
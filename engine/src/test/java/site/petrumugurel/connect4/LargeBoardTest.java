@@ -0,0 +1,118 @@
+package site.petrumugurel.connect4;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LargeBoardTest {
+
+    @Test
+    public void playsLikeBoard() throws Exception {
+        Random random = new Random(3);
+        int[][] geometries = {{4, 4, 2}, {6, 7, 4}, {10, 10, 5}, {7, 10, 6}};
+        for (int[] geometry : geometries) {
+            Board board = new Board(geometry[0], geometry[1], geometry[2]);
+            LargeBoard largeBoard = new LargeBoard(geometry[0], geometry[1], geometry[2]);
+            for (int game = 0; game < 50; game++) {
+                Board.PLAYERS side = Board.PLAYERS.PLAYER;
+                while (board.getWinner() == null && !board.isDraw()) {
+                    int column;
+                    do {
+                        column = random.nextInt(geometry[1]);
+                    } while (board.isColumnFull(column));
+                    assertEquals(board.storeNewDisk(side, column),
+                                 largeBoard.storeNewDisk(side, column));
+                    assertEquals(board.getWinner(), largeBoard.getWinner());
+                    assertEquals(board.isDraw(), largeBoard.isDraw());
+                    side = NegamaxEngine.opponent(side);
+                }
+                while (board.getMovesNumber() > 0) {
+                    assertEquals(board.undoMove(), largeBoard.undoMove());
+                }
+                assertEquals(Board.NO_MOVE, largeBoard.undoMove());
+            }
+        }
+    }
+
+    @Test
+    public void findsLinesSpanningManyWords() throws Exception {
+        // 32 disks on the bottom row take 32 * 65 bits, crossing 32 words.
+        LargeBoard board = new LargeBoard(64, 64, 32);
+        for (int column = 10; column < 42; column++) {
+            assertNull(board.getWinner());
+            board.storeNewDisk(Board.PLAYERS.PLAYER, column);
+            if (column < 41) {
+                board.storeNewDisk(Board.PLAYERS.AI, 63);
+            }
+        }
+        assertEquals(Board.PLAYERS.PLAYER, board.getWinner());
+        assertTrue(board.hasLine(Board.PLAYERS.PLAYER));
+        assertFalse(board.hasLine(Board.PLAYERS.AI));
+
+        board.undoMove();
+        assertNull(board.getWinner());
+        assertFalse(board.hasLine(Board.PLAYERS.PLAYER));
+    }
+
+    @Test
+    public void agreesWithCheckingEveryPosition() throws Exception {
+        Random random = new Random(8);
+        int[][] geometries = {{64, 64, 4}, {64, 64, 7}, {33, 17, 5}, {12, 64, 9}};
+        for (int[] geometry : geometries) {
+            LargeBoard board = new LargeBoard(geometry[0], geometry[1], geometry[2]);
+            for (int game = 0; game < 10; game++) {
+                board.clearBoard();
+                Board.PLAYERS side = Board.PLAYERS.PLAYER;
+                while (board.getWinner() == null && !board.isDraw()) {
+                    int column;
+                    do {
+                        column = random.nextInt(geometry[1]);
+                    } while (board.isColumnFull(column));
+                    board.storeNewDisk(side, column);
+                    side = NegamaxEngine.opponent(side);
+                }
+                Board.PLAYERS winner = board.getWinner();
+                assertEquals(winner != null, hasLine(board, NegamaxEngine.opponent(side)));
+                assertEquals(winner != null, board.hasLine(NegamaxEngine.opponent(side)));
+                board.undoMove();
+                assertFalse(hasLine(board, Board.PLAYERS.PLAYER));
+                assertFalse(hasLine(board, Board.PLAYERS.AI));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsBoardsOverTheMaximum() throws Exception {
+        new LargeBoard(LargeBoard.MAX_ROWS + 1, 8, 4);
+    }
+
+    /**
+     * Look for a line by counting the disks in every direction from every position.
+     */
+    private static boolean hasLine(LargeBoard board, Board.PLAYERS side) {
+        int disk = side == Board.PLAYERS.PLAYER ? Board.PLAYER_DISK : Board.AI_DISK;
+        int[][] steps = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+        for (int row = 0; row < board.getNumberOfRows(); row++) {
+            for (int col = 0; col < board.getNumberOfColumns(); col++) {
+                for (int[] step : steps) {
+                    int count = 0;
+                    int r = row;
+                    int c = col;
+                    while (count < board.getDisksNeededForWin()
+                           && r >= 0 && r < board.getNumberOfRows()
+                           && c < board.getNumberOfColumns() && board.getDiskAt(r, c) == disk) {
+                        count++;
+                        r += step[1];
+                        c += step[0];
+                    }
+                    if (count == board.getDisksNeededForWin()) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+}
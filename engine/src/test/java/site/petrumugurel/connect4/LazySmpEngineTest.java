@@ -0,0 +1,58 @@
+package site.petrumugurel.connect4;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LazySmpEngineTest {
+
+    @Test
+    public void takesImmediateWinOnManyThreads() throws Exception {
+        Board board = new Board(6, 7, 4);
+        for (int col = 0; col < 3; col++) {
+            board.storeNewDisk(Board.PLAYERS.AI, col);
+            board.storeNewDisk(Board.PLAYERS.PLAYER, 6);
+        }
+        board.storeNewDisk(Board.PLAYERS.PLAYER, 5);
+
+        LazySmpEngine engine = new LazySmpEngine(4, 6, new TranspositionTable(1 << 16));
+        try {
+            assertEquals(3, engine.chooseColumn(board, Board.PLAYERS.AI));
+            assertEquals(4, engine.getThreads());
+        }
+        finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void agreesWithSingleThreadedSearchOnForcedWin() throws Exception {
+        // Player has two open ends on the bottom row - the AI can't stop both.
+        Board board = new Board(6, 7, 4);
+        board.storeNewDisk(Board.PLAYERS.PLAYER, 2);
+        board.storeNewDisk(Board.PLAYERS.AI, 2);
+        board.storeNewDisk(Board.PLAYERS.PLAYER, 3);
+        board.storeNewDisk(Board.PLAYERS.AI, 3);
+
+        LazySmpEngine engine = new LazySmpEngine(3, 5, new TranspositionTable(1 << 16));
+        try {
+            int column = engine.chooseColumn(board, Board.PLAYERS.PLAYER);
+            assertTrue("played " + column, column == 1 || column == 4);
+            assertTrue(engine.getNodesVisited() > 0);
+        }
+        finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void reportsSpeedup() throws Exception {
+        LazySmpEngine engine = new LazySmpEngine(2, 4, new TranspositionTable(1 << 16));
+        try {
+            assertTrue(engine.measureSpeedup(new Board(6, 7, 4), Board.PLAYERS.PLAYER, 6) > 0);
+        }
+        finally {
+            engine.shutdown();
+        }
+    }
+}
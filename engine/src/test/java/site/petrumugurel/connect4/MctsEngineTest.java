@@ -0,0 +1,62 @@
+package site.petrumugurel.connect4;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MctsEngineTest {
+
+    @Test
+    public void takesImmediateWin() throws Exception {
+        Board board = new Board(6, 7, 4);
+        for (int col = 0; col < 3; col++) {
+            board.storeNewDisk(Board.PLAYERS.AI, col);
+            board.storeNewDisk(Board.PLAYERS.PLAYER, 6);
+        }
+        board.storeNewDisk(Board.PLAYERS.PLAYER, 5);
+
+        assertEquals(3, new MctsEngine(1, 5000, 1 << 16).chooseColumn(board, Board.PLAYERS.AI));
+    }
+
+    @Test
+    public void blocksOpponentWin() throws Exception {
+        Board board = new Board(6, 7, 4);
+        for (int i = 0; i < 3; i++) {
+            board.storeNewDisk(Board.PLAYERS.PLAYER, 4);
+            board.storeNewDisk(Board.PLAYERS.AI, i == 1 ? 0 : 6);
+        }
+
+        assertEquals(4, new MctsEngine(1, 5000, 1 << 16).chooseColumn(board, Board.PLAYERS.AI));
+    }
+
+    @Test
+    public void parallelSearchKeepsToTheBudgetAndTheBoard() throws Exception {
+        Board board = new Board(10, 10, 6);
+        board.storeNewDisk(Board.PLAYERS.PLAYER, 5);
+        long hash = board.getHash();
+
+        MctsEngine engine = new MctsEngine(3, 3000, 1 << 12);
+        try {
+            int column = engine.chooseColumn(board, Board.PLAYERS.AI);
+
+            assertTrue(column >= 0 && column < 10);
+            // Threads may each start a playout as the budget runs out.
+            assertTrue(engine.getPlayouts() >= 3000 && engine.getPlayouts() < 3000 + 3);
+            assertTrue(engine.getTreeNodes() > 1 && engine.getTreeNodes() <= 1 << 12);
+            assertTrue(engine.getPlayoutsPerSecond() > 0);
+            assertEquals(hash, board.getHash());
+            assertEquals(1, board.getMovesNumber());
+        }
+        finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void beatsRandomMoves() throws Exception {
+        Tournament tournament = new Tournament(6, 7, 4, Tournament.engineFactory("mcts:2000"),
+                                               Tournament.engineFactory("random"));
+        tournament.setThreads(1);
+        assertTrue(tournament.play(10).getWinRate() >= 0.8);
+    }
+}
@@ -0,0 +1,65 @@
+package site.petrumugurel.connect4;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class MoveOrdererTest {
+
+    @Test
+    public void columnsAreOrderedCenterFirst() throws Exception {
+        assertArrayEquals(new int[] {3, 2, 4, 1, 5, 0, 6}, MoveOrderer.centerFirstOrder(7));
+        assertArrayEquals(new int[] {2, 1, 3, 0}, MoveOrderer.centerFirstOrder(4));
+    }
+
+    @Test
+    public void tableMoveThenKillersThenHistory() throws Exception {
+        Board board = new Board(6, 7, 4);
+        MoveOrderer orderer = new MoveOrderer();
+        orderer.startSearch(7);
+
+        assertEquals(7, orderer.orderMoves(board, Board.PLAYERS.AI, 2, -1));
+        assertArrayEquals(new int[] {3, 2, 4, 1, 5, 0, 6}, Arrays.copyOf(orderer.getMoves(2), 7));
+
+        orderer.recordCutoff(Board.PLAYERS.AI, 2, 6, 1, 6);     // killer at ply 2
+        orderer.recordCutoff(Board.PLAYERS.AI, 5, 0, 5, 3);     // history only, for ply 2
+        assertEquals(7, orderer.orderMoves(board, Board.PLAYERS.AI, 2, 1));
+        assertArrayEquals(new int[] {1, 6, 0, 3, 2, 4, 5}, Arrays.copyOf(orderer.getMoves(2), 7));
+
+        // The other side doesn't share the history.
+        orderer.orderMoves(board, Board.PLAYERS.PLAYER, 2, -1);
+        assertArrayEquals(new int[] {6, 3, 2, 4, 1, 5, 0}, Arrays.copyOf(orderer.getMoves(2), 7));
+
+        assertEquals(2, orderer.getCutoffs());
+        assertEquals(0, orderer.getFirstMoveCutoffs());
+        assertEquals(4.5, orderer.getAverageCutoffMoveIndex(), 1e-9);
+    }
+
+    @Test
+    public void fullColumnsAreSkipped() throws Exception {
+        Board board = new Board(4, 4, 3);
+        for (int i = 0; i < 4; i++) {
+            board.storeNewDisk(i % 2 == 0 ? Board.PLAYERS.PLAYER : Board.PLAYERS.AI, 2);
+        }
+        MoveOrderer orderer = new MoveOrderer();
+        orderer.startSearch(4);
+        orderer.recordCutoff(Board.PLAYERS.PLAYER, 0, 2, 3, 0);
+
+        assertEquals(3, orderer.orderMoves(board, Board.PLAYERS.PLAYER, 0, 2));
+        assertArrayEquals(new int[] {1, 3, 0}, Arrays.copyOf(orderer.getMoves(0), 3));
+    }
+
+    @Test
+    public void orderingPrunesTheSearch() throws Exception {
+        Board board = new Board(6, 7, 4);
+        NegamaxEngine engine = new NegamaxEngine(8, 0);
+        engine.chooseColumn(board, Board.PLAYERS.AI);
+
+        MoveOrderer orderer = engine.getMoveOrderer();
+        assertTrue(orderer.getCutoffs() > 0);
+        // Most cutoffs should come from the first move tried.
+        assertTrue(orderer.getFirstMoveCutoffRate() > 0.5);
+    }
+}
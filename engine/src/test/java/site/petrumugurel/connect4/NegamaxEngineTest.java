@@ -0,0 +1,98 @@
+package site.petrumugurel.connect4;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class NegamaxEngineTest {
+
+    @Test
+    public void takesImmediateWin() throws Exception {
+        Board board = new Board(6, 7, 4);
+        for (int col = 0; col < 3; col++) {
+            board.storeNewDisk(Board.PLAYERS.AI, col);
+            board.storeNewDisk(Board.PLAYERS.PLAYER, 6);
+        }
+        board.storeNewDisk(Board.PLAYERS.PLAYER, 5);
+
+        assertEquals(3, new NegamaxEngine(4, 0).chooseColumn(board, Board.PLAYERS.AI));
+    }
+
+    @Test
+    public void blocksOpponentWin() throws Exception {
+        Board board = new Board(6, 7, 4);
+        for (int i = 0; i < 3; i++) {
+            board.storeNewDisk(Board.PLAYERS.PLAYER, 4);
+            board.storeNewDisk(Board.PLAYERS.AI, i == 1 ? 0 : 6);
+        }
+
+        assertEquals(4, new NegamaxEngine(4, 0).chooseColumn(board, Board.PLAYERS.AI));
+    }
+
+    @Test
+    public void doesNotModifyTheBoard() throws Exception {
+        Board board = new Board(10, 10, 5);
+        board.storeNewDisk(Board.PLAYERS.PLAYER, 4);
+
+        int column = new NegamaxEngine(3, 0).chooseColumn(board, Board.PLAYERS.AI);
+
+        assertFalse(board.isColumnFull(column));
+        assertEquals(1, board.getMovesNumber());
+        assertEquals(Board.IS_FREE, board.getDiskAt(8, 4));
+    }
+
+    @Test
+    public void evaluationIsSymmetricForBothSides() throws Exception {
+        Board board = new Board(5, 6, 3);
+        board.storeNewDisk(Board.PLAYERS.PLAYER, 2);
+        board.storeNewDisk(Board.PLAYERS.AI, 2);
+        board.storeNewDisk(Board.PLAYERS.PLAYER, 3);
+
+        int playerScore = NegamaxEngine.evaluate(board, Board.PLAYERS.PLAYER);
+        assertTrue(playerScore > 0);
+        assertEquals(-playerScore, NegamaxEngine.evaluate(board, Board.PLAYERS.AI));
+    }
+
+    @Test
+    public void timeBudgetLimitsTheSearch() throws Exception {
+        Board board = new Board(10, 10, 5);
+        NegamaxEngine engine = new NegamaxEngine(NegamaxEngine.MAX_PLIES, 0);
+        engine.setTimeBudget(100);
+
+        long start = System.nanoTime();
+        int column = engine.chooseColumn(board, Board.PLAYERS.PLAYER);
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+        assertTrue(column >= 0 && column < 10);
+        assertTrue(engine.getCompletedDepth() >= 1);
+        assertTrue("searched for " + elapsedMillis + " ms", elapsedMillis < 1000);
+    }
+
+    @Test
+    public void stopsDeepeningOnceTheWinIsFound() throws Exception {
+        Board board = new Board(6, 7, 4);
+        for (int col = 0; col < 3; col++) {
+            board.storeNewDisk(Board.PLAYERS.AI, col);
+            board.storeNewDisk(Board.PLAYERS.PLAYER, 6);
+        }
+        NegamaxEngine engine = new NegamaxEngine(20, 0);
+
+        assertEquals(3, engine.chooseColumn(board, Board.PLAYERS.AI));
+        assertEquals(1, engine.getCompletedDepth());
+    }
+
+    @Test
+    public void solvesTheEndgame() throws Exception {
+        Board board = new Board(4, 4, 3);
+        NegamaxEngine engine = new NegamaxEngine(2, 0);
+        board.storeNewDisk(Board.PLAYERS.PLAYER, engine.chooseColumn(board, Board.PLAYERS.PLAYER));
+        // The first player wins the smallest game, which is small enough to be solved at once.
+        assertEquals(EndgameSolver.WIN, engine.getForcedResult());
+        assertEquals(16, engine.getCompletedDepth());
+
+        engine.setEndgameThreshold(0);
+        engine.chooseColumn(board, Board.PLAYERS.AI);
+        assertEquals(EndgameSolver.UNKNOWN, engine.getForcedResult());
+        assertEquals(2, engine.getCompletedDepth());
+    }
+}
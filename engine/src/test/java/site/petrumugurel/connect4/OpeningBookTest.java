@@ -0,0 +1,104 @@
+package site.petrumugurel.connect4;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class OpeningBookTest {
+
+    @Test
+    public void bookMovesAreTheSolvedOnes() throws Exception {
+        // The smallest game is solved from the first move, so the book has to keep every win.
+        OpeningBook book = new OpeningBook(ByteBuffer.wrap(
+                OpeningBookGenerator.generate(4, 4, 3, 3, 4, 0, 2)));
+        assertEquals(3, book.getPlies());
+        assertEquals(4, book.getDepth());
+
+        Board board = new Board(4, 4, 3);
+        int column = book.lookup(board, Board.PLAYERS.PLAYER);
+        assertTrue(column >= 0 && column < 4);
+        board.storeNewDisk(Board.PLAYERS.PLAYER, column);
+        EndgameSolver solver = new EndgameSolver(new TranspositionTable(1 << 16));
+        assertEquals(EndgameSolver.LOSS, solver.solve(board, Board.PLAYERS.AI));
+
+        // Either side can start.
+        assertNotEquals(OpeningBook.NOT_FOUND, book.lookup(new Board(4, 4, 3), Board.PLAYERS.AI));
+    }
+
+    @Test
+    public void mirroredPositionsGetMirroredMoves() throws Exception {
+        OpeningBook book = new OpeningBook(ByteBuffer.wrap(
+                OpeningBookGenerator.generate(6, 7, 4, 3, 6, 0, 2)));
+        // Up to 2 disks, for either side starting: the empty board, the 7 first moves - 4 up
+        // to mirroring - and the 49 replies - 25 up to mirroring.
+        assertEquals(2 * (1 + 4 + 25), book.getPositions());
+
+        Board left = new Board(6, 7, 4);
+        left.storeNewDisk(Board.PLAYERS.PLAYER, 0);
+        left.storeNewDisk(Board.PLAYERS.AI, 1);
+        Board right = new Board(6, 7, 4);
+        right.storeNewDisk(Board.PLAYERS.PLAYER, 6);
+        right.storeNewDisk(Board.PLAYERS.AI, 5);
+        assertEquals(6 - book.lookup(left, Board.PLAYERS.PLAYER),
+                     book.lookup(right, Board.PLAYERS.PLAYER));
+    }
+
+    @Test
+    public void onlyCoversItsGeometryAndPlies() throws Exception {
+        OpeningBook book = new OpeningBook(ByteBuffer.wrap(
+                OpeningBookGenerator.generate(4, 4, 3, 2, 3, 0, 1)));
+        assertEquals(OpeningBook.NOT_FOUND, book.lookup(new Board(4, 5, 3), Board.PLAYERS.PLAYER));
+
+        Board board = new Board(4, 4, 3);
+        board.storeNewDisk(Board.PLAYERS.PLAYER, 0);
+        assertNotEquals(OpeningBook.NOT_FOUND, book.lookup(board, Board.PLAYERS.AI));
+        board.storeNewDisk(Board.PLAYERS.AI, 0);
+        assertEquals(OpeningBook.NOT_FOUND, book.lookup(board, Board.PLAYERS.PLAYER));
+    }
+
+    @Test
+    public void mappedFileIsReadInPlace() throws Exception {
+        byte[] bytes = OpeningBookGenerator.generate(5, 5, 4, 3, 4, 0, 2);
+        File file = File.createTempFile("opening", ".book");
+        file.deleteOnExit();
+        FileOutputStream output = new FileOutputStream(file);
+        try {
+            output.write(bytes);
+        }
+        finally {
+            output.close();
+        }
+
+        OpeningBook mapped = OpeningBook.map(file);
+        OpeningBook inMemory = new OpeningBook(ByteBuffer.wrap(bytes));
+        assertEquals(inMemory.getPositions(), mapped.getPositions());
+        Board board = new Board(5, 5, 4);
+        board.storeNewDisk(Board.PLAYERS.AI, 1);
+        assertEquals(inMemory.lookup(board, Board.PLAYERS.PLAYER),
+                     mapped.lookup(board, Board.PLAYERS.PLAYER));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsWhatIsNotABook() throws Exception {
+        new OpeningBook(ByteBuffer.wrap(new byte[OpeningBook.HEADER_BYTES]));
+    }
+
+    @Test
+    public void engineFallsBackOutOfTheBook() throws Exception {
+        BookEngine engine = new BookEngine(new RandomAIEngine(3));
+        engine.addBook(new OpeningBook(ByteBuffer.wrap(
+                OpeningBookGenerator.generate(4, 4, 3, 1, 4, 0, 1))));
+
+        Board board = new Board(4, 4, 3);
+        engine.chooseColumn(board, Board.PLAYERS.PLAYER);
+        assertTrue(engine.isLastMoveFromBook());
+        board.storeNewDisk(Board.PLAYERS.PLAYER, 1);
+        engine.chooseColumn(board, Board.PLAYERS.AI);
+        assertFalse(engine.isLastMoveFromBook());
+        assertEquals(1, engine.getBookMoves());
+    }
+}
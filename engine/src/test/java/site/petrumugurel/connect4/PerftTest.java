@@ -0,0 +1,39 @@
+package site.petrumugurel.connect4;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PerftTest {
+
+    // Counts also given by the original array based board.
+
+    @Test
+    public void classicBoardCounts() throws Exception {
+        Board board = new Board(6, 7, 4);
+        assertEquals(117649, Perft.count(board, Board.PLAYERS.PLAYER, 6));
+        // 7 ^ 7 less the 7 ways of filling a column with the first 6 moves.
+        assertEquals(823536, Perft.count(board, Board.PLAYERS.PLAYER, 7));
+        assertEquals(5686266, Perft.count(board, Board.PLAYERS.PLAYER, 8));
+        assertEquals(0, board.getMovesNumber());
+    }
+
+    @Test
+    public void wholeGameTreeOfSmallBoard() throws Exception {
+        Board board = new Board(4, 4, 3);
+        assertEquals(1020, Perft.count(board, Board.PLAYERS.PLAYER, 5));
+        assertEquals(131674, Perft.count(board, Board.PLAYERS.PLAYER, 9));
+        // No game lasts more than 16 moves.
+        assertEquals(3409240, Perft.count(board, Board.PLAYERS.PLAYER, 15));
+        assertEquals(3409240, Perft.count(board, Board.PLAYERS.PLAYER, 16));
+    }
+
+    @Test
+    public void parallelCountIsTheSame() throws Exception {
+        Board board = new Board(6, 7, 4);
+        board.storeNewDisk(Board.PLAYERS.PLAYER, 3);
+        assertEquals(Perft.count(board, Board.PLAYERS.AI, 6),
+                     Perft.countParallel(board, Board.PLAYERS.AI, 6, 3));
+        assertEquals(1, board.getMovesNumber());
+    }
+}
@@ -0,0 +1,82 @@
+package site.petrumugurel.connect4;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SearchMetricsTest {
+
+    @Test
+    public void negamaxSearchIsMeasured() throws Exception {
+        NegamaxEngine engine = new NegamaxEngine(7, 0, new TranspositionTable(1 << 16));
+        final SearchMetrics[] reported = new SearchMetrics[1];
+        engine.setSearchListener(new SearchMetrics.Listener() {
+            @Override
+            public void onSearchFinished(SearchMetrics metrics) {
+                reported[0] = metrics;
+            }
+        });
+        assertNull(engine.getLastMetrics());
+
+        engine.chooseColumn(new Board(6, 7, 4), Board.PLAYERS.PLAYER);
+        SearchMetrics metrics = engine.getLastMetrics();
+        assertSame(metrics, reported[0]);
+        assertEquals(engine.getNodesVisited(), metrics.getNodes());
+        assertEquals(7, metrics.getDepth());
+        assertEquals(1, metrics.getThreads());
+        assertTrue(metrics.getTimeNanos() > 0);
+        assertTrue(metrics.getNodesPerSecond() > 0);
+
+        // Iterative deepening finds the previous iterations' results in the table.
+        assertTrue(metrics.getTableProbes() > 0);
+        assertTrue(metrics.getTableHitRate() > 0);
+        assertTrue(metrics.getTableHitRate() + metrics.getTableCollisionRate() <= 1);
+        assertTrue(metrics.getCutoffRate() > 0 && metrics.getCutoffRate() <= 1);
+        assertEquals(engine.getMoveOrderer().getFirstMoveCutoffRate(),
+                     metrics.getFirstMoveCutoffRate(), 0);
+        // Alpha-beta keeps well below the 7 moves of every position.
+        assertTrue(metrics.getEffectiveBranchingFactor() > 1);
+        assertTrue(metrics.getEffectiveBranchingFactor() < 7);
+    }
+
+    @Test
+    public void parallelSearchCountsAllThreads() throws Exception {
+        LazySmpEngine engine = new LazySmpEngine(3, 6, new TranspositionTable(1 << 16));
+        final int[] reports = new int[1];
+        engine.setSearchListener(new SearchMetrics.Listener() {
+            @Override
+            public void onSearchFinished(SearchMetrics metrics) {
+                reports[0]++;
+            }
+        });
+        try {
+            engine.chooseColumn(new Board(6, 7, 4), Board.PLAYERS.PLAYER);
+            SearchMetrics metrics = engine.getLastMetrics();
+            assertEquals(1, reports[0]);
+            assertEquals(3, metrics.getThreads());
+            assertEquals(engine.getNodesVisited(), metrics.getNodes());
+            assertEquals(engine.getCompletedDepth(), metrics.getDepth());
+        }
+        finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void combinedRatesWeighEveryThread() throws Exception {
+        SearchMetrics main = new SearchMetrics(1000, 2000000, 5, 1, 100, 50, 10, 40, 30, 20, 600);
+        SearchMetrics helper = new SearchMetrics(3000, 2500000, 6, 1, 300, 30, 30, 60, 20, 20, 900);
+        SearchMetrics combined = SearchMetrics.combine(main, helper);
+
+        assertEquals(4000, combined.getNodes());
+        assertEquals(2, combined.getThreads());
+        assertEquals(5, combined.getDepth());
+        assertEquals(2.0, combined.getTimeMillis(), 1e-9);
+        assertEquals(2e6, combined.getNodesPerSecond(), 1e-3);
+        assertEquals(0.2, combined.getTableHitRate(), 1e-9);
+        assertEquals(0.1, combined.getTableCollisionRate(), 1e-9);
+        assertEquals(0.5, combined.getCutoffRate(), 1e-9);
+        assertEquals(0.8, combined.getFirstMoveCutoffRate(), 1e-9);
+        assertEquals(Math.pow(600, 1.0 / 5), combined.getEffectiveBranchingFactor(), 1e-9);
+    }
+}
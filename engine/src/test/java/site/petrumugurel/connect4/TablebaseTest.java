@@ -0,0 +1,127 @@
+package site.petrumugurel.connect4;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TablebaseTest {
+
+    @Test
+    public void agreesWithTheEndgameSolver() throws Exception {
+        Random random = new Random(5);
+        TranspositionTable table = new TranspositionTable(1 << 16);
+        EndgameSolver solver = new EndgameSolver(table);
+        for (int disksNeededForWin = 2; disksNeededForWin <= 4; disksNeededForWin++) {
+            table.clear();
+            Tablebase tablebase = new Tablebase(ByteBuffer.wrap(
+                    TablebaseGenerator.generate(4, 4, disksNeededForWin)));
+            for (int game = 0; game < 50; game++) {
+                // Lines as long as the board is wide can only be switched to, as in the app.
+                Board board = new Board(4, 4, 2);
+                board.modifyNoOfDisksToWin(disksNeededForWin);
+                Board.PLAYERS side = game % 2 == 0 ? Board.PLAYERS.PLAYER : Board.PLAYERS.AI;
+                while (board.getWinner() == null && !board.isDraw()) {
+                    assertEquals(solver.solve(board, side), tablebase.lookup(board, side));
+                    int column;
+                    do {
+                        column = random.nextInt(4);
+                    } while (board.isColumnFull(column));
+                    board.storeNewDisk(side, column);
+                    side = NegamaxEngine.opponent(side);
+                }
+                if (board.getWinner() != null) {
+                    // Games already over are not in the table.
+                    assertEquals(EndgameSolver.UNKNOWN, tablebase.lookup(board, side));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void bestMovesKeepTheResult() throws Exception {
+        Tablebase tablebase = new Tablebase(ByteBuffer.wrap(TablebaseGenerator.generate(4, 4, 3)));
+        Board board = new Board(4, 4, 3);
+        // Whoever starts wins the smallest game.
+        assertEquals(EndgameSolver.WIN, tablebase.lookup(board, Board.PLAYERS.PLAYER));
+        assertEquals(EndgameSolver.WIN, tablebase.lookup(board, Board.PLAYERS.AI));
+
+        Board.PLAYERS side = Board.PLAYERS.AI;
+        while (board.getWinner() == null && !board.isDraw()) {
+            int result = tablebase.lookup(board, side);
+            board.storeNewDisk(side, tablebase.bestColumn(board, side));
+            side = NegamaxEngine.opponent(side);
+            if (board.getWinner() == null && !board.isDraw()) {
+                assertEquals(-result, tablebase.lookup(board, side));
+            }
+        }
+        assertEquals(Board.PLAYERS.AI, board.getWinner());
+        assertEquals(Tablebase.NOT_FOUND, tablebase.bestColumn(board, side));
+    }
+
+    @Test
+    public void onlyCoversItsGeometry() throws Exception {
+        Tablebase tablebase = new Tablebase(ByteBuffer.wrap(TablebaseGenerator.generate(4, 4, 2)));
+        assertEquals(31 * 31 * 31 * 31, tablebase.getPositions());
+        assertEquals(EndgameSolver.UNKNOWN,
+                     tablebase.lookup(new Board(4, 4, 3), Board.PLAYERS.PLAYER));
+        assertEquals(Tablebase.NOT_FOUND,
+                     tablebase.bestColumn(new Board(4, 5, 2), Board.PLAYERS.PLAYER));
+    }
+
+    @Test
+    public void mappedFileIsReadInPlace() throws Exception {
+        byte[] bytes = TablebaseGenerator.generate(4, 4, 3);
+        File file = File.createTempFile("tablebase", ".tb");
+        file.deleteOnExit();
+        FileOutputStream output = new FileOutputStream(file);
+        try {
+            output.write(bytes);
+        }
+        finally {
+            output.close();
+        }
+
+        Tablebase mapped = Tablebase.map(file);
+        Board board = new Board(4, 4, 3);
+        board.storeNewDisk(Board.PLAYERS.PLAYER, 0);
+        board.storeNewDisk(Board.PLAYERS.AI, 1);
+        Tablebase inMemory = new Tablebase(ByteBuffer.wrap(bytes));
+        assertEquals(inMemory.lookup(board, Board.PLAYERS.PLAYER),
+                     mapped.lookup(board, Board.PLAYERS.PLAYER));
+        assertEquals(inMemory.bestColumn(board, Board.PLAYERS.PLAYER),
+                     mapped.bestColumn(board, Board.PLAYERS.PLAYER));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsWhatIsNotATablebase() throws Exception {
+        new Tablebase(ByteBuffer.wrap(new byte[Tablebase.HEADER_BYTES]));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsLinesLongerThanTheBoard() throws Exception {
+        TablebaseGenerator.generate(4, 5, 5);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsBoardsWithTooManyPositions() throws Exception {
+        TablebaseGenerator.generate(5, 6, 4);
+    }
+
+    @Test
+    public void enginePlaysFromTheTablebase() throws Exception {
+        BookEngine engine = new BookEngine(new RandomAIEngine(3));
+        engine.addTablebase(new Tablebase(ByteBuffer.wrap(TablebaseGenerator.generate(4, 4, 3))));
+
+        Board board = new Board(4, 4, 3);
+        engine.chooseColumn(board, Board.PLAYERS.PLAYER);
+        assertTrue(engine.isLastMoveFromBook());
+        engine.chooseColumn(new Board(5, 5, 3), Board.PLAYERS.PLAYER);
+        assertFalse(engine.isLastMoveFromBook());
+        assertEquals(1, engine.getBookMoves());
+    }
+}
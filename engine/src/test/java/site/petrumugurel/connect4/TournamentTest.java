@@ -0,0 +1,42 @@
+package site.petrumugurel.connect4;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TournamentTest {
+
+    @Test
+    public void searchBeatsRandomMoves() throws Exception {
+        Tournament tournament = new Tournament(6, 7, 4, Tournament.engineFactory("negamax:4"),
+                                               Tournament.engineFactory("random"));
+        tournament.setThreads(2);
+        Tournament.Results results = tournament.play(20);
+
+        assertEquals(20, results.getGames());
+        assertEquals(20, results.getWins(0) + results.getWins(1) + results.getDraws());
+        assertTrue(results.getWinRate() > 0.8);
+        assertTrue(results.getMoveLatency(0, 50) <= results.getMoveLatency(0, 99));
+        assertTrue(results.getGamesPerSecond() > 0);
+    }
+
+    @Test
+    public void sameSeedPlaysSameGames() throws Exception {
+        Tournament tournament = new Tournament(5, 5, 3, Tournament.engineFactory("random"),
+                                               Tournament.engineFactory("random"));
+        tournament.setSeed(7);
+        tournament.setThreads(3);
+        Tournament.Results first = tournament.play(50);
+        tournament.setThreads(1);
+        Tournament.Results second = tournament.play(50);
+
+        assertEquals(first.getWins(0), second.getWins(0));
+        assertEquals(first.getWins(1), second.getWins(1));
+        assertEquals(first.getDraws(), second.getDraws());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownEnginesAreRejected() throws Exception {
+        Tournament.engineFactory("alphazero");
+    }
+}
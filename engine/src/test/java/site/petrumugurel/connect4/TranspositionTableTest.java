@@ -0,0 +1,111 @@
+package site.petrumugurel.connect4;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TranspositionTableTest {
+
+    @Test
+    public void storedDataIsPackedAndUnpacked() throws Exception {
+        TranspositionTable table = new TranspositionTable(1 << 10);
+        table.store(0x1234L, 17, -NegamaxEngine.WIN_SCORE + 5, TranspositionTable.UPPER_BOUND, 9);
+
+        long data = table.probe(0x1234L);
+        assertEquals(-NegamaxEngine.WIN_SCORE + 5, TranspositionTable.score(data));
+        assertEquals(17, TranspositionTable.depth(data));
+        assertEquals(TranspositionTable.UPPER_BOUND, TranspositionTable.bound(data));
+        assertEquals(9, TranspositionTable.column(data));
+        assertEquals(TranspositionTable.NOT_FOUND, table.probe(0x1235L));
+    }
+
+    @Test
+    public void deepResultsSurviveShallowOnes() throws Exception {
+        TranspositionTable table = new TranspositionTable(2);   // a single bucket
+        table.store(1L, 8, 10, TranspositionTable.EXACT, 3);
+        table.store(2L, 2, 20, TranspositionTable.EXACT, 4);
+        table.store(3L, 1, 30, TranspositionTable.EXACT, 5);
+
+        assertEquals(10, TranspositionTable.score(table.probe(1L)));
+        assertEquals(TranspositionTable.NOT_FOUND, table.probe(2L));
+        assertEquals(30, TranspositionTable.score(table.probe(3L)));
+    }
+
+    @Test
+    public void deeperResultDemotesTheOldOne() throws Exception {
+        TranspositionTable table = new TranspositionTable(2);
+        table.store(1L, 4, 10, TranspositionTable.EXACT, 3);
+        table.store(2L, 6, 20, TranspositionTable.LOWER_BOUND, -1);
+
+        assertEquals(10, TranspositionTable.score(table.probe(1L)));
+        assertEquals(-1, TranspositionTable.column(table.probe(2L)));
+
+        table.clear();
+        assertEquals(TranspositionTable.NOT_FOUND, table.probe(1L));
+        assertEquals(2, table.getCapacity());
+    }
+
+    @Test
+    public void boardHashDependsOnlyOnDisks() throws Exception {
+        Board first = new Board(6, 7, 4);
+        first.storeNewDisk(Board.PLAYERS.PLAYER, 2);
+        first.storeNewDisk(Board.PLAYERS.AI, 3);
+        first.storeNewDisk(Board.PLAYERS.PLAYER, 4);
+
+        Board second = new Board(6, 7, 4);
+        second.storeNewDisk(Board.PLAYERS.PLAYER, 4);
+        second.storeNewDisk(Board.PLAYERS.AI, 3);
+        second.storeNewDisk(Board.PLAYERS.PLAYER, 2);
+
+        assertEquals(first.getHash(), second.getHash());
+        second.clearBoard();
+        assertEquals(0L, second.getHash());
+    }
+
+    @Test
+    public void mirroredBoardsShareCanonicalHash() throws Exception {
+        Board board = new Board(6, 8, 4);
+        board.storeNewDisk(Board.PLAYERS.PLAYER, 1);
+        board.storeNewDisk(Board.PLAYERS.AI, 2);
+        board.storeNewDisk(Board.PLAYERS.PLAYER, 2);
+
+        Board mirror = new Board(6, 8, 4);
+        mirror.storeNewDisk(Board.PLAYERS.PLAYER, 6);
+        mirror.storeNewDisk(Board.PLAYERS.AI, 5);
+        mirror.storeNewDisk(Board.PLAYERS.PLAYER, 5);
+
+        assertNotEquals(board.getHash(), mirror.getHash());
+        assertEquals(board.getCanonicalHash(), mirror.getCanonicalHash());
+        assertTrue(board.isCanonicalMirrored() != mirror.isCanonicalMirrored());
+
+        mirror.undoMove();
+        mirror.storeNewDisk(Board.PLAYERS.PLAYER, 2);
+        assertNotEquals(board.getCanonicalHash(), mirror.getCanonicalHash());
+
+        // A symmetric position is its own mirror.
+        Board symmetric = new Board(6, 8, 4);
+        symmetric.storeNewDisk(Board.PLAYERS.PLAYER, 0);
+        symmetric.storeNewDisk(Board.PLAYERS.AI, 7);
+        symmetric.storeNewDisk(Board.PLAYERS.PLAYER, 7);
+        symmetric.storeNewDisk(Board.PLAYERS.AI, 0);
+        assertEquals(symmetric.getHash(), symmetric.getCanonicalHash());
+        assertFalse(symmetric.isCanonicalMirrored());
+    }
+
+    @Test
+    public void mirroredPositionIsFoundInTheTable() throws Exception {
+        Board board = new Board(6, 7, 4);
+        board.storeNewDisk(Board.PLAYERS.PLAYER, 1);
+        board.storeNewDisk(Board.PLAYERS.AI, 2);
+        Board mirror = new Board(6, 7, 4);
+        mirror.storeNewDisk(Board.PLAYERS.PLAYER, 5);
+        mirror.storeNewDisk(Board.PLAYERS.AI, 4);
+
+        NegamaxEngine engine = new NegamaxEngine(8, 0);
+        int column = engine.chooseColumn(board, Board.PLAYERS.PLAYER);
+        long nodes = engine.getNodesVisited();
+
+        assertEquals(6 - column, engine.chooseColumn(mirror, Board.PLAYERS.PLAYER));
+        assertTrue(engine.getNodesVisited() * 10 < nodes);
+    }
+}
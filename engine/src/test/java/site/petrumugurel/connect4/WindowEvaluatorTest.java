@@ -0,0 +1,114 @@
+package site.petrumugurel.connect4;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class WindowEvaluatorTest {
+
+    @Test
+    public void incrementalScoreMatchesFullScan() throws Exception {
+        int[][] geometries = {{4, 4, 3}, {6, 7, 4}, {10, 10, 9}, {8, 5, 2}};
+        Random random = new Random(42);
+        for (int[] geometry : geometries) {
+            Board board = new Board(geometry[0], geometry[1], geometry[2]);
+            int[] moves = new int[geometry[1]];
+            for (int game = 0; game < 20; game++) {
+                board.clearBoard();
+                int side = 0;
+                while (board.getWinner() == null && !board.isDraw()) {
+                    int count = board.getLegalMoves(moves);
+                    board.storeNewDisk(Board.PLAYERS.values()[side], moves[random.nextInt(count)]);
+                    side ^= 1;
+                    assertEquals(scanScore(board),
+                                 board.getEvaluator().getScore(Board.PLAYERS.PLAYER));
+                    if (random.nextInt(4) == 0) {
+                        board.undoMove();
+                        side ^= 1;
+                        assertEquals(scanScore(board),
+                                     board.getEvaluator().getScore(Board.PLAYERS.PLAYER));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void copiesAndNewWinningLengthsAreEvaluated() throws Exception {
+        Board board = new Board(6, 7, 4);
+        board.storeNewDisk(Board.PLAYERS.PLAYER, 3);
+        board.storeNewDisk(Board.PLAYERS.AI, 4);
+        board.storeNewDisk(Board.PLAYERS.PLAYER, 3);
+
+        Board copy = new Board(board);
+        copy.storeNewDisk(Board.PLAYERS.AI, 3);
+        assertEquals(scanScore(board), board.getEvaluator().getScore(Board.PLAYERS.PLAYER));
+        assertEquals(scanScore(copy), copy.getEvaluator().getScore(Board.PLAYERS.PLAYER));
+
+        board.modifyNoOfDisksToWin(3);
+        assertEquals(scanScore(board), board.getEvaluator().getScore(Board.PLAYERS.PLAYER));
+    }
+
+    @Test
+    public void threatsAreCountedByRowParity() throws Exception {
+        Board board = new Board(6, 7, 4);
+        // Player gets 0 - 2 on the bottom row, AI three disks stacked in column 5.
+        int[] columns = {0, 5, 1, 5, 2, 5};
+        for (int i = 0; i < columns.length; i++) {
+            board.storeNewDisk(i % 2 == 0 ? Board.PLAYERS.PLAYER : Board.PLAYERS.AI, columns[i]);
+        }
+        WindowEvaluator evaluator = board.getEvaluator();
+        assertEquals(1, evaluator.getThreats(Board.PLAYERS.PLAYER, true));     // 1st row
+        assertEquals(0, evaluator.getThreats(Board.PLAYERS.PLAYER, false));
+        assertEquals(0, evaluator.getThreats(Board.PLAYERS.AI, true));
+        assertEquals(1, evaluator.getThreats(Board.PLAYERS.AI, false));        // 4th row
+
+        board.undoMove();
+        assertEquals(0, evaluator.getThreats(Board.PLAYERS.AI, false));
+
+        board.storeNewDisk(Board.PLAYERS.AI, 3);     // blocks the player
+        assertEquals(0, evaluator.getThreats(Board.PLAYERS.PLAYER, true));
+    }
+
+
+    /**
+     * Score of the board computed from scratch, by scanning every window.
+     */
+    private static int scanScore(Board board) {
+        int[][] directions = {{0, 1}, {1, 0}, {-1, 1}, {1, 1}};
+        int k = board.getDisksNeededForWin();
+        int score = 0;
+        for (int[] direction : directions) {
+            for (int row = 0; row < board.getNumberOfRows(); row++) {
+                for (int col = 0; col < board.getNumberOfColumns(); col++) {
+                    int lastRow = row + direction[0] * (k - 1);
+                    int lastCol = col + direction[1] * (k - 1);
+                    if (lastRow < 0 || lastRow >= board.getNumberOfRows()
+                        || lastCol >= board.getNumberOfColumns()) {
+                        continue;
+                    }
+                    int player = 0;
+                    int ai = 0;
+                    for (int i = 0; i < k; i++) {
+                        int disk = board.getDiskAt(row + i * direction[0], col + i * direction[1]);
+                        if (disk == Board.PLAYER_DISK) {
+                            player++;
+                        }
+                        else if (disk == Board.AI_DISK) {
+                            ai++;
+                        }
+                    }
+                    if (ai == 0 && player > 0) {
+                        score += 1 << (2 * (player - 1));
+                    }
+                    else if (player == 0 && ai > 0) {
+                        score -= 1 << (2 * (ai - 1));
+                    }
+                }
+            }
+        }
+        return score;
+    }
+}
@@ -0,0 +1,63 @@
+package site.petrumugurel.connect4;
+
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class WinningLinesTest {
+
+    @Test
+    public void classicBoardHas69Lines() throws Exception {
+        WinningLines lines = WinningLines.forGeometry(6, 7, 4);
+        assertEquals(69, lines.getLinesNumber());
+
+        // The bottom left corner is on one horizontal, one vertical and one diagonal line,
+        // the center of the bottom row on 4 horizontal, 1 vertical and 2 diagonal ones.
+        assertEquals(3, lines.linesThrough(BitBoard.bitIndex(6, 5, 0)).length);
+        assertEquals(7, lines.linesThrough(BitBoard.bitIndex(6, 5, 3)).length);
+    }
+
+    @Test
+    public void linesAreMasksOfTheirPositions() throws Exception {
+        WinningLines lines = WinningLines.forGeometry(10, 10, 4);
+        // Horizontal line on the top row of the 4 rightmost columns - all in the high word.
+        long high = 0;
+        for (int col = 6; col < 10; col++) {
+            high |= 1L << (BitBoard.bitIndex(10, 0, col) - BitBoard.WORD_SIZE);
+        }
+
+        int found = 0;
+        for (int line : lines.linesThrough(BitBoard.bitIndex(10, 0, 9))) {
+            if (lines.isComplete(line, 0L, high)) {
+                found++;
+            }
+        }
+        assertEquals(1, found);
+    }
+
+    @Test
+    public void geometriesAreSharedBetweenThreads() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        Callable<WinningLines> lookup = new Callable<WinningLines>() {
+            @Override
+            public WinningLines call() throws Exception {
+                return WinningLines.forGeometry(9, 8, 5);
+            }
+        };
+        Future<?>[] results = new Future<?>[8];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = executor.submit(lookup);
+        }
+        for (Future<?> result : results) {
+            assertSame(WinningLines.forGeometry(9, 8, 5), result.get());
+        }
+        executor.shutdown();
+
+        assertNotSame(WinningLines.forGeometry(9, 8, 5), WinningLines.forGeometry(9, 8, 4));
+    }
+}